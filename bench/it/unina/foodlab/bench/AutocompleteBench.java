@@ -0,0 +1,96 @@
+package it.unina.foodlab.bench;
+
+import it.unina.foodlab.util.AutocompleteIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Uso: AutocompleteBench [numArgomenti] [numQuery]
+// Misura costruzione dell'indice e suggerimenti per query vuote, per prefisso e con errori di battitura.
+public final class AutocompleteBench {
+
+    private static final String[] PAROLE = {
+            "cucina", "pasticceria", "panificazione", "pizza", "pasta", "fresca", "vegana",
+            "vegetariana", "mediterranea", "giapponese", "sushi", "dolci", "cioccolato",
+            "lievitati", "pesce", "carne", "griglia", "street", "food", "regionale", "napoletana",
+            "siciliana", "toscana", "gelateria", "cocktail", "caffè", "tè", "formaggi", "salumi",
+            "conserve", "fermentazione", "senza", "glutine", "bambini", "avanzata", "base"
+    };
+
+    private static final int K = 12;
+
+    private AutocompleteBench() {}
+
+    public static void main(String[] args) {
+        int numArgomenti = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int numQuery = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Random rnd = new Random(42);
+
+        List<String> argomenti = new ArrayList<>(numArgomenti);
+        for (int i = 0; i < numArgomenti; i++) {
+            argomenti.add(argomento(rnd, i));
+        }
+
+        // il primo giro scalda il JIT, si misura il secondo
+        new AutocompleteIndex(argomenti);
+        long t0 = System.nanoTime();
+        AutocompleteIndex indice = new AutocompleteIndex(argomenti);
+        long costruzione = System.nanoTime() - t0;
+        System.out.printf("argomenti=%d (distinti %d), costruzione=%.1f ms%n",
+                numArgomenti, indice.size(), costruzione / 1e6);
+
+        List<String> prefissi = new ArrayList<>(numQuery);
+        List<String> errori = new ArrayList<>(numQuery);
+        for (int i = 0; i < numQuery; i++) {
+            String a = argomenti.get(rnd.nextInt(argomenti.size()));
+            prefissi.add(a.substring(0, 1 + rnd.nextInt(Math.min(6, a.length()))));
+            errori.add(refuso(rnd, a));
+        }
+
+        for (int giro = 0; giro < 2; giro++) {
+            boolean stampa = giro == 1;
+            misura("query vuota", indice, List.of(""), numQuery, stampa);
+            misura("prefisso", indice, prefissi, numQuery, stampa);
+            misura("con refuso (fuzzy)", indice, errori, numQuery, stampa);
+        }
+    }
+
+    private static void misura(String nome, AutocompleteIndex indice, List<String> query, int n, boolean stampa) {
+        Tempi tempi = new Tempi();
+        long trovati = 0;
+        for (int i = 0; i < n; i++) {
+            String q = query.get(i % query.size());
+            long t0 = System.nanoTime();
+            trovati += indice.suggerisci(q, K).size();
+            tempi.aggiungi(System.nanoTime() - t0);
+        }
+        if (stampa) {
+            System.out.println(tempi.riepilogo(nome, 1e3, "us") + "  suggerimenti/query=" + (trovati / n));
+        }
+    }
+
+    private static String argomento(Random rnd, int i) {
+        int parole = 2 + rnd.nextInt(3);
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < parole; p++) {
+            if (p > 0) {
+                sb.append(' ');
+            }
+            String w = PAROLE[rnd.nextInt(PAROLE.length)];
+            sb.append(p == 0 ? Character.toUpperCase(w.charAt(0)) + w.substring(1) : w);
+        }
+        return sb.append(' ').append(i).toString();
+    }
+
+    private static String refuso(Random rnd, String s) {
+        char[] c = s.toCharArray();
+        int i = rnd.nextInt(Math.max(1, c.length - 1));
+        if (i + 1 < c.length) {
+            char t = c[i];
+            c[i] = c[i + 1];
+            c[i + 1] = t;
+        }
+        return new String(c);
+    }
+}
@@ -0,0 +1,128 @@
+package it.unina.foodlab.bench;
+
+import it.unina.foodlab.dao.ChefDao;
+import it.unina.foodlab.dao.ChefDao.RegisterOutcome;
+import it.unina.foodlab.model.Chef;
+import it.unina.foodlab.util.Db;
+import it.unina.foodlab.util.PasswordHasher;
+import it.unina.foodlab.util.PasswordHasher.PasswordException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Uso: LoginBench [thread] [loginPerThread]
+// Registra uno chef di prova, poi lancia insieme i login da più thread con ChefDao.login
+// e stampa login/s, p50 e p99. I login rifiutati perché il pool degli hash è pieno sono contati a parte.
+public final class LoginBench {
+
+    private static final String CF = "ZBLOGIN001";
+    private static final String USERNAME = "bench_login";
+    private static final String PASSWORD = "password-di-prova";
+
+    private static final String SQL_PULISCI = "DELETE FROM chef WHERE cf_chef = ? AND username = ?";
+
+    private LoginBench() {}
+
+    private record Risultato(Tempi tempi, int rifiutati, int falliti) {}
+
+    public static void main(String[] args) throws Exception {
+        int thread = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        ChefDao dao = new ChefDao();
+        ExecutorService pool = Executors.newFixedThreadPool(thread);
+        try {
+            pulisci();
+            RegisterOutcome esito = dao.register(chef());
+            if (esito != RegisterOutcome.OK) {
+                System.out.println("Registrazione dello chef di prova non riuscita: " + esito);
+                return;
+            }
+
+            // riscaldamento
+            for (int i = 0; i < 3; i++) {
+                dao.login(USERNAME, PASSWORD);
+            }
+
+            CountDownLatch via = new CountDownLatch(1);
+            List<Future<Risultato>> futuri = new ArrayList<>();
+            for (int t = 0; t < thread; t++) {
+                futuri.add(pool.submit(() -> {
+                    via.await();
+                    return esegui(dao, perThread);
+                }));
+            }
+
+            long t0 = System.nanoTime();
+            via.countDown();
+
+            Tempi tempi = new Tempi();
+            int rifiutati = 0;
+            int falliti = 0;
+            for (Future<Risultato> f : futuri) {
+                Risultato r = f.get();
+                for (int i = 0; i < r.tempi().size(); i++) {
+                    tempi.aggiungi(r.tempi().get(i));
+                }
+                rifiutati += r.rifiutati();
+                falliti += r.falliti();
+            }
+            double secondi = (System.nanoTime() - t0) / 1e9;
+
+            System.out.printf("thread=%d login=%d in %.2f s -> %.1f login/s (rifiutati per coda piena: %d, falliti: %d)%n",
+                    thread, tempi.size(), secondi, tempi.size() / secondi, rifiutati, falliti);
+            System.out.println(tempi.riepilogo("ChefDao.login", 1e6, "ms"));
+        } finally {
+            pool.shutdownNow();
+            pulisci();
+            PasswordHasher.shutdown();
+            Db.shutdown();
+        }
+    }
+
+    private static Risultato esegui(ChefDao dao, int n) throws Exception {
+        Tempi tempi = new Tempi();
+        int rifiutati = 0;
+        int falliti = 0;
+        for (int i = 0; i < n; i++) {
+            long t0 = System.nanoTime();
+            try {
+                if (dao.login(USERNAME, PASSWORD) != null) {
+                    tempi.aggiungi(System.nanoTime() - t0);
+                } else {
+                    falliti++;
+                }
+            } catch (PasswordException ex) {
+                rifiutati++;
+            }
+        }
+        return new Risultato(tempi, rifiutati, falliti);
+    }
+
+    private static Chef chef() {
+        Chef c = new Chef();
+        c.setCF_Chef(CF);
+        c.setUsername(USERNAME);
+        c.setNome("Bench");
+        c.setCognome("Login");
+        c.setPassword(PASSWORD);
+        c.setNascita(LocalDate.of(1990, 1, 1));
+        return c;
+    }
+
+    private static void pulisci() throws Exception {
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_PULISCI)) {
+            ps.setString(1, CF);
+            ps.setString(2, USERNAME);
+            ps.executeUpdate();
+        }
+    }
+}
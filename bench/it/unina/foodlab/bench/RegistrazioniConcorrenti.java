@@ -0,0 +1,124 @@
+package it.unina.foodlab.bench;
+
+import it.unina.foodlab.dao.ChefDao;
+import it.unina.foodlab.dao.ChefDao.RegisterOutcome;
+import it.unina.foodlab.model.Chef;
+import it.unina.foodlab.util.Db;
+import it.unina.foodlab.util.PasswordHasher;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Uso: RegistrazioniConcorrenti [registrazioniPerChiave] [giri]
+// Lancia insieme molte ChefDao.register che condividono lo stesso CF oppure lo stesso username
+// e verifica che per ogni chiave ne riesca esattamente una. Esce con codice 1 se la verifica fallisce.
+// Gli chef creati vengono cancellati alla fine.
+public final class RegistrazioniConcorrenti {
+
+    private static final String PREFISSO_CF = "ZB";
+    private static final String PREFISSO_USERNAME = "bench_reg_";
+
+    private static final String SQL_PULISCI =
+            "DELETE FROM chef WHERE cf_chef LIKE '" + PREFISSO_CF + "%' AND username LIKE '" + PREFISSO_USERNAME + "%'";
+
+    private RegistrazioniConcorrenti() {}
+
+    private record Tentativo(boolean cfCondiviso, RegisterOutcome esito) {}
+
+    public static void main(String[] args) throws Exception {
+        int perChiave = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int giri = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        ChefDao dao = new ChefDao();
+        ExecutorService pool = Executors.newFixedThreadPool(perChiave * 2);
+        boolean ok = true;
+
+        try {
+            pulisci();
+            for (int g = 0; g < giri; g++) {
+                ok &= giro(dao, pool, g, perChiave);
+            }
+        } finally {
+            pool.shutdownNow();
+            pulisci();
+            PasswordHasher.shutdown();
+            Db.shutdown();
+        }
+
+        System.out.println(ok ? "OK: una sola registrazione riuscita per chiave in ogni giro" : "FALLITO");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean giro(ChefDao dao, ExecutorService pool, int g, int perChiave) throws Exception {
+        String cfCondiviso = String.format("%s%02dC%05d", PREFISSO_CF, g, 0);
+        String usernameCondiviso = PREFISSO_USERNAME + g + "_condiviso";
+
+        CountDownLatch via = new CountDownLatch(1);
+        List<Future<Tentativo>> futuri = new ArrayList<>();
+        for (int i = 0; i < perChiave; i++) {
+            // stesso CF, username diversi
+            Chef a = chef(cfCondiviso, PREFISSO_USERNAME + g + "_cf_" + i);
+            // stesso username, CF diversi
+            Chef b = chef(String.format("%s%02dU%05d", PREFISSO_CF, g, i), usernameCondiviso);
+            futuri.add(pool.submit(() -> {
+                via.await();
+                return new Tentativo(true, dao.register(a));
+            }));
+            futuri.add(pool.submit(() -> {
+                via.await();
+                return new Tentativo(false, dao.register(b));
+            }));
+        }
+
+        long t0 = System.nanoTime();
+        via.countDown();
+
+        Map<RegisterOutcome, Integer> perCf = new EnumMap<>(RegisterOutcome.class);
+        Map<RegisterOutcome, Integer> perUsername = new EnumMap<>(RegisterOutcome.class);
+        for (Future<Tentativo> f : futuri) {
+            Tentativo t = f.get();
+            (t.cfCondiviso() ? perCf : perUsername).merge(t.esito(), 1, Integer::sum);
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        boolean ok = verifica(perCf, RegisterOutcome.DUPLICATE_CF, perChiave)
+                && verifica(perUsername, RegisterOutcome.DUPLICATE_USERNAME, perChiave);
+        System.out.printf("giro %d: %d registrazioni in %d ms, CF condiviso %s, username condiviso %s%s%n",
+                g, perChiave * 2, ms, perCf, perUsername, ok ? "" : "  <-- ERRATO");
+        return ok;
+    }
+
+    private static boolean verifica(Map<RegisterOutcome, Integer> esiti, RegisterOutcome duplicato, int totale) {
+        return esiti.getOrDefault(RegisterOutcome.OK, 0) == 1
+                && esiti.getOrDefault(duplicato, 0) == totale - 1;
+    }
+
+    private static Chef chef(String cf, String username) {
+        Chef c = new Chef();
+        c.setCF_Chef(cf);
+        c.setUsername(username);
+        c.setNome("Bench");
+        c.setCognome("Concorrenza");
+        c.setPassword("password-di-prova");
+        c.setNascita(LocalDate.of(1990, 1, 1));
+        return c;
+    }
+
+    private static void pulisci() throws Exception {
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_PULISCI)) {
+            ps.executeUpdate();
+        }
+    }
+}
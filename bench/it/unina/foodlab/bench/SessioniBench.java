@@ -0,0 +1,173 @@
+package it.unina.foodlab.bench;
+
+import it.unina.foodlab.dao.SessioneDao;
+import it.unina.foodlab.model.Sessione;
+import it.unina.foodlab.util.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Uso: SessioniBench [dimensioni, es. 1,100,1000] [corsiDaGenerare]
+// Confronta il caricamento delle sessioni corso per corso (N query) con SessioneDao.findByCorsi (una query).
+// Con corsiDaGenerare > 0 crea corsi fittizi per lo chef con più corsi e li cancella alla fine.
+public final class SessioniBench {
+
+    private static final String ARGOMENTO_FITTIZIO = "__bench_sessioni__";
+    private static final int RIPETIZIONI = 5;
+
+    private static final String SQL_CHEF =
+            "SELECT fk_cf_chef FROM corso GROUP BY fk_cf_chef ORDER BY COUNT(*) DESC LIMIT 1";
+
+    private static final String SQL_CORSI =
+            "SELECT id_corso FROM corso WHERE fk_cf_chef = ? ORDER BY id_corso";
+
+    private static final String SQL_GENERA_CORSI =
+            "INSERT INTO corso (data_inizio, data_fine, argomento, frequenza, \"numSessioni\", fk_cf_chef) " +
+            "SELECT current_date, current_date + 7, ?, 'settimanale', 2, ? FROM generate_series(1, ?)";
+
+    private static final String SQL_GENERA_SESSIONI =
+            "INSERT INTO sessione_online (fk_id_corso, data, ora_inizio, ora_fine, piattaforma) " +
+            "SELECT c.id_corso, current_date + g * 7, '18:00', '20:00', 'Teams' " +
+            "FROM corso c CROSS JOIN generate_series(0, 1) g WHERE c.argomento = ?";
+
+    private static final String SQL_PULISCI_SESSIONI =
+            "DELETE FROM sessione_online WHERE fk_id_corso IN (SELECT id_corso FROM corso WHERE argomento = ?)";
+
+    private static final String SQL_PULISCI_CORSI =
+            "DELETE FROM corso WHERE argomento = ?";
+
+    private SessioniBench() {}
+
+    public static void main(String[] args) throws Exception {
+        String[] dim = (args.length > 0 ? args[0] : "1,100,1000").split(",");
+        int daGenerare = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        try {
+            String cf = chefConPiuCorsi();
+            if (cf == null) {
+                System.out.println("Nessun corso nel database.");
+                return;
+            }
+            if (daGenerare > 0) {
+                genera(cf, daGenerare);
+            }
+
+            List<Long> corsi = corsiDi(cf);
+            SessioneDao dao = new SessioneDao(cf);
+            System.out.printf("chef=%s corsi disponibili=%d%n", cf, corsi.size());
+
+            for (String d : dim) {
+                int n = Math.min(Integer.parseInt(d.trim()), corsi.size());
+                List<Long> ids = corsi.subList(0, n);
+
+                // giro di riscaldamento, usato anche per controllare che i risultati coincidano
+                Map<Long, List<Sessione>> perCorso = perCorso(dao, ids);
+                Map<Long, List<Sessione>> insieme = dao.findByCorsi(ids);
+                if (!stessiRisultati(perCorso, insieme)) {
+                    System.out.println("ATTENZIONE: risultati diversi per " + n + " corsi");
+                }
+
+                Tempi tLoop = new Tempi();
+                Tempi tBatch = new Tempi();
+                for (int r = 0; r < RIPETIZIONI; r++) {
+                    long t0 = System.nanoTime();
+                    perCorso(dao, ids);
+                    tLoop.aggiungi(System.nanoTime() - t0);
+
+                    t0 = System.nanoTime();
+                    dao.findByCorsi(ids);
+                    tBatch.aggiungi(System.nanoTime() - t0);
+                }
+
+                System.out.printf("corsi=%-6d query: %d contro 1%n", n, n);
+                System.out.println("  " + tLoop.riepilogo("un corso alla volta", 1e6, "ms"));
+                System.out.println("  " + tBatch.riepilogo("findByCorsi (ANY)", 1e6, "ms"));
+            }
+        } finally {
+            if (daGenerare > 0) {
+                pulisci();
+            }
+            Db.shutdown();
+        }
+    }
+
+    private static Map<Long, List<Sessione>> perCorso(SessioneDao dao, List<Long> ids) throws Exception {
+        Map<Long, List<Sessione>> out = new HashMap<>();
+        for (Long id : ids) {
+            List<Sessione> s = dao.findByCorso(id);
+            if (!s.isEmpty()) {
+                out.put(id, s);
+            }
+        }
+        return out;
+    }
+
+    private static boolean stessiRisultati(Map<Long, List<Sessione>> a, Map<Long, List<Sessione>> b) {
+        if (!a.keySet().equals(b.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Long, List<Sessione>> e : a.entrySet()) {
+            if (e.getValue().size() != b.get(e.getKey()).size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String chefConPiuCorsi() throws SQLException {
+        try (Connection conn = Db.get();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(SQL_CHEF)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private static List<Long> corsiDi(String cf) throws SQLException {
+        List<Long> out = new ArrayList<>();
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_CORSI)) {
+            ps.setString(1, cf);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(rs.getLong(1));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void genera(String cf, int n) throws SQLException {
+        try (Connection conn = Db.get()) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_GENERA_CORSI)) {
+                ps.setString(1, ARGOMENTO_FITTIZIO);
+                ps.setString(2, cf);
+                ps.setInt(3, n);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(SQL_GENERA_SESSIONI)) {
+                ps.setString(1, ARGOMENTO_FITTIZIO);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static void pulisci() throws SQLException {
+        try (Connection conn = Db.get()) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_PULISCI_SESSIONI)) {
+                ps.setString(1, ARGOMENTO_FITTIZIO);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(SQL_PULISCI_CORSI)) {
+                ps.setString(1, ARGOMENTO_FITTIZIO);
+                ps.executeUpdate();
+            }
+        }
+    }
+}
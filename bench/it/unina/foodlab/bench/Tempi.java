@@ -0,0 +1,49 @@
+package it.unina.foodlab.bench;
+
+import java.util.Arrays;
+
+// raccoglie durate in nanosecondi e stampa media e percentili
+final class Tempi {
+
+    private long[] ns = new long[1024];
+    private int n = 0;
+
+    void aggiungi(long durataNs) {
+        if (n == ns.length) {
+            ns = Arrays.copyOf(ns, n * 2);
+        }
+        ns[n++] = durataNs;
+    }
+
+    int size() {
+        return n;
+    }
+
+    long get(int i) {
+        return ns[i];
+    }
+
+    long percentile(double p) {
+        if (n == 0) {
+            return 0;
+        }
+        long[] ordinati = Arrays.copyOf(ns, n);
+        Arrays.sort(ordinati);
+        int i = (int) Math.ceil(p / 100.0 * n) - 1;
+        return ordinati[Math.max(0, Math.min(n - 1, i))];
+    }
+
+    double media() {
+        long tot = 0;
+        for (int i = 0; i < n; i++) {
+            tot += ns[i];
+        }
+        return n == 0 ? 0 : (double) tot / n;
+    }
+
+    String riepilogo(String nome, double unitaNs, String unita) {
+        return String.format("%-24s n=%-7d media=%10.3f %s  p50=%10.3f %s  p99=%10.3f %s",
+                nome, n, media() / unitaNs, unita,
+                percentile(50) / unitaNs, unita, percentile(99) / unitaNs, unita);
+    }
+}
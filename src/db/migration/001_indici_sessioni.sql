@@ -0,0 +1,17 @@
+-- Indici per la lettura delle sessioni di un corso (SessioneDao.findByCorso)
+-- e per i filtri per intervallo di date (ReportDao).
+
+CREATE INDEX IF NOT EXISTS idx_sessione_online_corso
+    ON sessione_online (fk_id_corso, data, ora_inizio);
+
+CREATE INDEX IF NOT EXISTS idx_sessione_presenza_corso
+    ON sessione_presenza (fk_id_corso, data, ora_inizio);
+
+CREATE INDEX IF NOT EXISTS idx_sessione_online_data
+    ON sessione_online (data, ora_inizio);
+
+CREATE INDEX IF NOT EXISTS idx_sessione_presenza_data
+    ON sessione_presenza (data, ora_inizio);
+
+CREATE INDEX IF NOT EXISTS idx_corso_chef
+    ON corso (fk_cf_chef);
@@ -0,0 +1,8 @@
+-- Indici per la paginazione a cursore dei corsi (CorsoDao.findPage),
+-- ordinata per data_inizio DESC, id_corso DESC.
+
+CREATE INDEX IF NOT EXISTS idx_corso_data_inizio_id
+    ON corso (data_inizio DESC, id_corso DESC);
+
+CREATE INDEX IF NOT EXISTS idx_corso_chef_data_inizio_id
+    ON corso (fk_cf_chef, data_inizio DESC, id_corso DESC);
@@ -0,0 +1,249 @@
+-- Contatori pre-aggregati per il report mensile (ReportDao.getReportMensile).
+-- Sono mantenuti dai trigger sulle sessioni e sui collegamenti sessione/ricetta,
+-- cosi' il report legge solo le righe del mese e dello chef richiesti.
+
+LOCK TABLE corso, sessione_online, sessione_presenza, sessione_presenza_ricetta
+    IN SHARE ROW EXCLUSIVE MODE;
+
+-- Sessioni per corso e mese
+CREATE TABLE IF NOT EXISTS report_corso_mese (
+    id_corso     bigint      NOT NULL,
+    mese         date        NOT NULL,
+    cf_chef      varchar(10) NOT NULL,
+    num_online   int         NOT NULL DEFAULT 0,
+    num_pratiche int         NOT NULL DEFAULT 0,
+    PRIMARY KEY (id_corso, mese)
+);
+
+CREATE INDEX IF NOT EXISTS idx_report_corso_mese_chef
+    ON report_corso_mese (cf_chef, mese);
+
+-- Numero di ricette di ogni sessione in presenza
+CREATE TABLE IF NOT EXISTS sessione_presenza_num_ricette (
+    id_sess_pr  int         PRIMARY KEY,
+    id_corso    bigint      NOT NULL,
+    cf_chef     varchar(10) NOT NULL,
+    mese        date        NOT NULL,
+    num_ricette int         NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_sessione_presenza_num_ricette_corso
+    ON sessione_presenza_num_ricette (id_corso);
+
+-- Istogramma: quante sessioni pratiche dello chef nel mese hanno num_ricette ricette
+CREATE TABLE IF NOT EXISTS report_ricette_mese (
+    cf_chef      varchar(10) NOT NULL,
+    mese         date        NOT NULL,
+    num_ricette  int         NOT NULL,
+    num_sessioni int         NOT NULL DEFAULT 0,
+    PRIMARY KEY (cf_chef, mese, num_ricette)
+);
+
+-- Popolamento iniziale
+TRUNCATE report_corso_mese, sessione_presenza_num_ricette, report_ricette_mese;
+
+INSERT INTO sessione_presenza_num_ricette (id_sess_pr, id_corso, cf_chef, mese, num_ricette)
+SELECT sp."idSessionePresenza",
+       sp.fk_id_corso,
+       c.fk_cf_chef,
+       date_trunc('month', sp.data)::date,
+       (SELECT COUNT(*) FROM sessione_presenza_ricetta spr
+         WHERE spr.fk_id_sess_pr = sp."idSessionePresenza")
+  FROM sessione_presenza sp
+  JOIN corso c ON c.id_corso = sp.fk_id_corso;
+
+INSERT INTO report_corso_mese (id_corso, mese, cf_chef, num_online, num_pratiche)
+SELECT s.fk_id_corso, s.mese, c.fk_cf_chef,
+       COUNT(*) FILTER (WHERE s.online),
+       COUNT(*) FILTER (WHERE NOT s.online)
+  FROM (
+        SELECT fk_id_corso, date_trunc('month', data)::date AS mese, true AS online
+          FROM sessione_online
+        UNION ALL
+        SELECT fk_id_corso, date_trunc('month', data)::date AS mese, false AS online
+          FROM sessione_presenza
+       ) s
+  JOIN corso c ON c.id_corso = s.fk_id_corso
+ GROUP BY s.fk_id_corso, s.mese, c.fk_cf_chef;
+
+INSERT INTO report_ricette_mese (cf_chef, mese, num_ricette, num_sessioni)
+SELECT cf_chef, mese, num_ricette, COUNT(*)
+  FROM sessione_presenza_num_ricette
+ GROUP BY cf_chef, mese, num_ricette;
+
+-- Funzioni di aggiornamento
+CREATE OR REPLACE FUNCTION report_sposta_corso(p_id_corso bigint, p_mese date, p_cf varchar,
+                                               d_online int, d_pratiche int)
+RETURNS void LANGUAGE plpgsql AS $$
+BEGIN
+    IF p_cf IS NULL THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO report_corso_mese AS r (id_corso, mese, cf_chef, num_online, num_pratiche)
+    VALUES (p_id_corso, p_mese, p_cf, d_online, d_pratiche)
+    ON CONFLICT (id_corso, mese) DO UPDATE
+       SET num_online   = r.num_online + EXCLUDED.num_online,
+           num_pratiche = r.num_pratiche + EXCLUDED.num_pratiche;
+
+    DELETE FROM report_corso_mese
+     WHERE id_corso = p_id_corso AND mese = p_mese
+       AND num_online <= 0 AND num_pratiche <= 0;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION report_sposta_ricette(p_cf varchar, p_mese date, p_num int, d int)
+RETURNS void LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO report_ricette_mese AS r (cf_chef, mese, num_ricette, num_sessioni)
+    VALUES (p_cf, p_mese, p_num, d)
+    ON CONFLICT (cf_chef, mese, num_ricette) DO UPDATE
+       SET num_sessioni = r.num_sessioni + EXCLUDED.num_sessioni;
+
+    DELETE FROM report_ricette_mese
+     WHERE cf_chef = p_cf AND mese = p_mese AND num_ricette = p_num
+       AND num_sessioni <= 0;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_report_sessione_online()
+RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    v_cf varchar;
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        IF TG_OP = 'DELETE'
+           OR OLD.fk_id_corso IS DISTINCT FROM NEW.fk_id_corso
+           OR date_trunc('month', OLD.data) IS DISTINCT FROM date_trunc('month', NEW.data) THEN
+            SELECT cf_chef INTO v_cf
+              FROM report_corso_mese
+             WHERE id_corso = OLD.fk_id_corso AND mese = date_trunc('month', OLD.data)::date;
+            PERFORM report_sposta_corso(OLD.fk_id_corso, date_trunc('month', OLD.data)::date, v_cf, -1, 0);
+        ELSE
+            RETURN NULL;
+        END IF;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        SELECT fk_cf_chef INTO v_cf FROM corso WHERE id_corso = NEW.fk_id_corso;
+        PERFORM report_sposta_corso(NEW.fk_id_corso, date_trunc('month', NEW.data)::date, v_cf, 1, 0);
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_report_sessione_presenza()
+RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    v_old sessione_presenza_num_ricette%ROWTYPE;
+    v_cf  varchar;
+    v_num int := 0;
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        IF TG_OP = 'UPDATE'
+           AND OLD.fk_id_corso IS NOT DISTINCT FROM NEW.fk_id_corso
+           AND date_trunc('month', OLD.data) IS NOT DISTINCT FROM date_trunc('month', NEW.data) THEN
+            RETURN NULL;
+        END IF;
+
+        DELETE FROM sessione_presenza_num_ricette
+         WHERE id_sess_pr = OLD."idSessionePresenza"
+        RETURNING * INTO v_old;
+
+        IF FOUND THEN
+            v_num := v_old.num_ricette;
+            PERFORM report_sposta_corso(v_old.id_corso, v_old.mese, v_old.cf_chef, 0, -1);
+            PERFORM report_sposta_ricette(v_old.cf_chef, v_old.mese, v_old.num_ricette, -1);
+        END IF;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        SELECT fk_cf_chef INTO v_cf FROM corso WHERE id_corso = NEW.fk_id_corso;
+        IF v_cf IS NOT NULL THEN
+            INSERT INTO sessione_presenza_num_ricette (id_sess_pr, id_corso, cf_chef, mese, num_ricette)
+            VALUES (NEW."idSessionePresenza", NEW.fk_id_corso, v_cf, date_trunc('month', NEW.data)::date, v_num);
+            PERFORM report_sposta_corso(NEW.fk_id_corso, date_trunc('month', NEW.data)::date, v_cf, 0, 1);
+            PERFORM report_sposta_ricette(v_cf, date_trunc('month', NEW.data)::date, v_num, 1);
+        END IF;
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_report_sessione_presenza_ricetta()
+RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    v_row sessione_presenza_num_ricette%ROWTYPE;
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.fk_id_sess_pr = NEW.fk_id_sess_pr THEN
+        RETURN NULL;
+    END IF;
+
+    -- se la sessione e' gia' stata cancellata (cascade) la riga non c'e' piu'
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        UPDATE sessione_presenza_num_ricette
+           SET num_ricette = num_ricette - 1
+         WHERE id_sess_pr = OLD.fk_id_sess_pr
+        RETURNING * INTO v_row;
+
+        IF FOUND THEN
+            PERFORM report_sposta_ricette(v_row.cf_chef, v_row.mese, v_row.num_ricette + 1, -1);
+            PERFORM report_sposta_ricette(v_row.cf_chef, v_row.mese, v_row.num_ricette, 1);
+        END IF;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        UPDATE sessione_presenza_num_ricette
+           SET num_ricette = num_ricette + 1
+         WHERE id_sess_pr = NEW.fk_id_sess_pr
+        RETURNING * INTO v_row;
+
+        IF FOUND THEN
+            PERFORM report_sposta_ricette(v_row.cf_chef, v_row.mese, v_row.num_ricette - 1, -1);
+            PERFORM report_sposta_ricette(v_row.cf_chef, v_row.mese, v_row.num_ricette, 1);
+        END IF;
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_report_corso_chef()
+RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT mese, num_ricette FROM sessione_presenza_num_ricette WHERE id_corso = NEW.id_corso LOOP
+        PERFORM report_sposta_ricette(OLD.fk_cf_chef, r.mese, r.num_ricette, -1);
+        PERFORM report_sposta_ricette(NEW.fk_cf_chef, r.mese, r.num_ricette, 1);
+    END LOOP;
+
+    UPDATE sessione_presenza_num_ricette SET cf_chef = NEW.fk_cf_chef WHERE id_corso = NEW.id_corso;
+    UPDATE report_corso_mese SET cf_chef = NEW.fk_cf_chef WHERE id_corso = NEW.id_corso;
+
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_report_sessione_online ON sessione_online;
+CREATE TRIGGER trg_report_sessione_online
+    AFTER INSERT OR UPDATE OF fk_id_corso, data OR DELETE ON sessione_online
+    FOR EACH ROW EXECUTE FUNCTION trg_report_sessione_online();
+
+DROP TRIGGER IF EXISTS trg_report_sessione_presenza ON sessione_presenza;
+CREATE TRIGGER trg_report_sessione_presenza
+    AFTER INSERT OR UPDATE OF fk_id_corso, data OR DELETE ON sessione_presenza
+    FOR EACH ROW EXECUTE FUNCTION trg_report_sessione_presenza();
+
+DROP TRIGGER IF EXISTS trg_report_sessione_presenza_ricetta ON sessione_presenza_ricetta;
+CREATE TRIGGER trg_report_sessione_presenza_ricetta
+    AFTER INSERT OR UPDATE OF fk_id_sess_pr OR DELETE ON sessione_presenza_ricetta
+    FOR EACH ROW EXECUTE FUNCTION trg_report_sessione_presenza_ricetta();
+
+DROP TRIGGER IF EXISTS trg_report_corso_chef ON corso;
+CREATE TRIGGER trg_report_corso_chef
+    AFTER UPDATE OF fk_cf_chef ON corso
+    FOR EACH ROW WHEN (OLD.fk_cf_chef IS DISTINCT FROM NEW.fk_cf_chef)
+    EXECUTE FUNCTION trg_report_corso_chef();
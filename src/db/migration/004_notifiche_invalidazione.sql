@@ -0,0 +1,73 @@
+-- Notifiche di invalidazione per le cache dei client (util.Notifiche).
+-- Payload: tabella|operazione|id|cf_chef|yyyy-mm (campi vuoti se non applicabili).
+
+CREATE OR REPLACE FUNCTION notifica_riga(p_tabella text, p_op text, p_riga jsonb)
+RETURNS void LANGUAGE plpgsql AS $$
+DECLARE
+    v_id   text;
+    v_cf   text;
+    v_data date;
+BEGIN
+    CASE p_tabella
+        WHEN 'corso' THEN
+            v_id := p_riga->>'id_corso';
+            v_cf := p_riga->>'fk_cf_chef';
+        WHEN 'sessione_online', 'sessione_presenza' THEN
+            v_id := COALESCE(p_riga->>'idsessioneonline', p_riga->>'idSessionePresenza');
+            v_data := (p_riga->>'data')::date;
+            SELECT fk_cf_chef INTO v_cf FROM corso WHERE id_corso = (p_riga->>'fk_id_corso')::bigint;
+        WHEN 'sessione_presenza_ricetta' THEN
+            v_id := p_riga->>'fk_id_sess_pr';
+            SELECT c.fk_cf_chef, sp.data INTO v_cf, v_data
+              FROM sessione_presenza sp
+              JOIN corso c ON c.id_corso = sp.fk_id_corso
+             WHERE sp."idSessionePresenza" = (p_riga->>'fk_id_sess_pr')::int;
+        WHEN 'ricetta' THEN
+            v_id := p_riga->>'id_ricetta';
+        ELSE
+            v_id := '';
+    END CASE;
+
+    PERFORM pg_notify('foodlab_invalidate',
+            concat_ws('|', p_tabella, lower(p_op), COALESCE(v_id, ''), COALESCE(v_cf, ''),
+                      COALESCE(to_char(v_data, 'YYYY-MM'), '')));
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_notifica_invalidazione()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM notifica_riga(TG_TABLE_NAME, TG_OP, to_jsonb(OLD));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM notifica_riga(TG_TABLE_NAME, TG_OP, to_jsonb(NEW));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_notifica_corso ON corso;
+CREATE TRIGGER trg_notifica_corso
+    AFTER INSERT OR UPDATE OR DELETE ON corso
+    FOR EACH ROW EXECUTE FUNCTION trg_notifica_invalidazione();
+
+DROP TRIGGER IF EXISTS trg_notifica_sessione_online ON sessione_online;
+CREATE TRIGGER trg_notifica_sessione_online
+    AFTER INSERT OR UPDATE OR DELETE ON sessione_online
+    FOR EACH ROW EXECUTE FUNCTION trg_notifica_invalidazione();
+
+DROP TRIGGER IF EXISTS trg_notifica_sessione_presenza ON sessione_presenza;
+CREATE TRIGGER trg_notifica_sessione_presenza
+    AFTER INSERT OR UPDATE OR DELETE ON sessione_presenza
+    FOR EACH ROW EXECUTE FUNCTION trg_notifica_invalidazione();
+
+DROP TRIGGER IF EXISTS trg_notifica_sessione_presenza_ricetta ON sessione_presenza_ricetta;
+CREATE TRIGGER trg_notifica_sessione_presenza_ricetta
+    AFTER INSERT OR UPDATE OR DELETE ON sessione_presenza_ricetta
+    FOR EACH ROW EXECUTE FUNCTION trg_notifica_invalidazione();
+
+DROP TRIGGER IF EXISTS trg_notifica_ricetta ON ricetta;
+CREATE TRIGGER trg_notifica_ricetta
+    AFTER INSERT OR UPDATE OR DELETE ON ricetta
+    FOR EACH ROW EXECUTE FUNCTION trg_notifica_invalidazione();
@@ -0,0 +1,50 @@
+-- Versione di riga e tombstone per la sincronizzazione incrementale dei corsi
+-- (CorsoDao.findChangedSince). La versione e' l'id della transazione che ha
+-- scritto la riga: un client che riparte dallo xmin del proprio snapshot non
+-- perde le transazioni ancora aperte al momento della lettura.
+
+ALTER TABLE corso ADD COLUMN IF NOT EXISTS versione   bigint      NOT NULL DEFAULT txid_current();
+ALTER TABLE corso ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS idx_corso_versione ON corso (versione);
+
+CREATE TABLE IF NOT EXISTS corso_eliminato (
+    id_corso     bigint      PRIMARY KEY,
+    cf_chef      varchar(10),
+    versione     bigint      NOT NULL,
+    eliminato_il timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_corso_eliminato_versione ON corso_eliminato (versione);
+
+CREATE OR REPLACE FUNCTION trg_corso_versione()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.versione := txid_current();
+    NEW.updated_at := now();
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_corso_tombstone()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO corso_eliminato (id_corso, cf_chef, versione)
+    VALUES (OLD.id_corso, OLD.fk_cf_chef, txid_current())
+    ON CONFLICT (id_corso) DO UPDATE
+       SET cf_chef = EXCLUDED.cf_chef,
+           versione = EXCLUDED.versione,
+           eliminato_il = now();
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_corso_versione ON corso;
+CREATE TRIGGER trg_corso_versione
+    BEFORE INSERT OR UPDATE ON corso
+    FOR EACH ROW EXECUTE FUNCTION trg_corso_versione();
+
+DROP TRIGGER IF EXISTS trg_corso_tombstone ON corso;
+CREATE TRIGGER trg_corso_tombstone
+    AFTER DELETE ON corso
+    FOR EACH ROW EXECUTE FUNCTION trg_corso_tombstone();
@@ -0,0 +1,56 @@
+-- Dizionario degli argomenti dei corsi con il numero di corsi che li usano
+-- (CorsoDao.findDistinctArgomenti), mantenuto dai trigger su corso.
+
+CREATE TABLE IF NOT EXISTS argomento (
+    nome      varchar(100) PRIMARY KEY,
+    num_corsi int          NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_argomento_ordine ON argomento (lower(nome), nome);
+
+LOCK TABLE corso IN SHARE ROW EXCLUSIVE MODE;
+
+TRUNCATE argomento;
+
+INSERT INTO argomento (nome, num_corsi)
+SELECT TRIM(argomento), COUNT(*)
+  FROM corso
+ WHERE argomento IS NOT NULL AND TRIM(argomento) <> ''
+ GROUP BY TRIM(argomento);
+
+CREATE OR REPLACE FUNCTION argomento_sposta(p_nome text, d int)
+RETURNS void LANGUAGE plpgsql AS $$
+BEGIN
+    IF p_nome IS NULL OR TRIM(p_nome) = '' THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO argomento AS a (nome, num_corsi)
+    VALUES (TRIM(p_nome), d)
+    ON CONFLICT (nome) DO UPDATE
+       SET num_corsi = a.num_corsi + EXCLUDED.num_corsi;
+
+    DELETE FROM argomento WHERE nome = TRIM(p_nome) AND num_corsi <= 0;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_argomento_corso()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND TRIM(OLD.argomento) IS NOT DISTINCT FROM TRIM(NEW.argomento) THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM argomento_sposta(OLD.argomento, -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM argomento_sposta(NEW.argomento, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_argomento_corso ON corso;
+CREATE TRIGGER trg_argomento_corso
+    AFTER INSERT OR UPDATE OF argomento OR DELETE ON corso
+    FOR EACH ROW EXECUTE FUNCTION trg_argomento_corso();
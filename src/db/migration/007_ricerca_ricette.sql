@@ -0,0 +1,13 @@
+-- Ricerca nel catalogo ricette per nome/descrizione (RicettaDao.search).
+-- L'espressione dell'indice trigrammi deve restare identica a quella usata nella query.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_ricetta_testo_trgm
+    ON ricetta USING gin ((lower(nome) || ' ' || lower(coalesce(descrizione, ''))) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_ricetta_nome_ordine
+    ON ricetta (lower(nome), id_ricetta);
+
+CREATE INDEX IF NOT EXISTS idx_ricetta_difficolta
+    ON ricetta (difficolta, lower(nome), id_ricetta);
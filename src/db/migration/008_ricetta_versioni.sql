@@ -0,0 +1,46 @@
+-- Versione di riga e tombstone per la cache del catalogo ricette
+-- (RicettaDao.findChangedSince), con la stessa logica di 005 per i corsi.
+
+ALTER TABLE ricetta ADD COLUMN IF NOT EXISTS versione   bigint      NOT NULL DEFAULT txid_current();
+ALTER TABLE ricetta ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS idx_ricetta_versione ON ricetta (versione);
+
+CREATE TABLE IF NOT EXISTS ricetta_eliminata (
+    id_ricetta   bigint      PRIMARY KEY,
+    versione     bigint      NOT NULL,
+    eliminata_il timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_ricetta_eliminata_versione ON ricetta_eliminata (versione);
+
+CREATE OR REPLACE FUNCTION trg_ricetta_versione()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.versione := txid_current();
+    NEW.updated_at := now();
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_ricetta_tombstone()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO ricetta_eliminata (id_ricetta, versione)
+    VALUES (OLD.id_ricetta, txid_current())
+    ON CONFLICT (id_ricetta) DO UPDATE
+       SET versione = EXCLUDED.versione,
+           eliminata_il = now();
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_ricetta_versione ON ricetta;
+CREATE TRIGGER trg_ricetta_versione
+    BEFORE INSERT OR UPDATE ON ricetta
+    FOR EACH ROW EXECUTE FUNCTION trg_ricetta_versione();
+
+DROP TRIGGER IF EXISTS trg_ricetta_tombstone ON ricetta;
+CREATE TRIGGER trg_ricetta_tombstone
+    AFTER DELETE ON ricetta
+    FOR EACH ROW EXECUTE FUNCTION trg_ricetta_tombstone();
@@ -0,0 +1,12 @@
+-- Username univoco: ChefDao.register si affida al vincolo (ON CONFLICT DO NOTHING)
+-- invece di controllare prima con query separate.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM chef GROUP BY username HAVING COUNT(*) > 1) THEN
+        RAISE EXCEPTION 'Username duplicati nella tabella chef: risolverli prima di applicare la migrazione';
+    END IF;
+END;
+$$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS chef_username_key ON chef (username);
@@ -0,0 +1,4 @@
+-- Le password diventano hash PBKDF2 (PasswordHasher), più lunghi dei 50 caratteri attuali.
+-- Le righe ancora in chiaro vengono convertite da ChefDao.login al primo accesso.
+
+ALTER TABLE chef ALTER COLUMN password TYPE varchar(255);
@@ -0,0 +1,10 @@
+-- L'elenco ricette si ordina con LOWER(nome) COLLATE "C" (per code point), lo stesso
+-- ordine della cache in memoria: gli indici di 007 usavano la collation del database.
+
+DROP INDEX IF EXISTS idx_ricetta_nome_ordine;
+CREATE INDEX idx_ricetta_nome_ordine
+    ON ricetta ((lower(nome) COLLATE "C"), id_ricetta);
+
+DROP INDEX IF EXISTS idx_ricetta_difficolta;
+CREATE INDEX idx_ricetta_difficolta
+    ON ricetta (difficolta, (lower(nome) COLLATE "C"), id_ricetta);
@@ -1,21 +1,26 @@
 package it.unina.foodlab.controller;
 
+import it.unina.foodlab.dao.RicettaDao;
 import it.unina.foodlab.dao.SessioneDao;
 import it.unina.foodlab.model.Ricetta;
+import it.unina.foodlab.util.Async;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxTableCell;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 
 import java.util.*;
 
@@ -25,20 +30,41 @@ public class AssociaRicetteController extends Dialog<List<Long>> {
 	@FXML private TableView<Riga> table;
 	@FXML private TableColumn<Riga, Boolean> colChk;
 	@FXML private TableColumn<Riga, Number> colTempo;
+	@FXML private TextField txtCerca;
+	@FXML private ComboBox<String> cbDifficolta;
+	@FXML private TextField txtTempoMax;
+	@FXML private Label lblSelezionate;
+
+	private static final int PAGE_SIZE = RicettaDao.DEFAULT_PAGE_SIZE;
+	private static final double SOGLIA_SCROLL = 0.9;
+	private static final String TUTTE = "Tutte";
 
 	private final SessioneDao sessioneDao;
+	private final RicettaDao ricettaDao;
 	private final int idSessionePresenza;
-	private final List<Ricetta> tutteLeRicette;
 	private final List<Ricetta> ricetteGiaAssociate;
+
+	// la selezione sopravvive ai cambi di ricerca, la tabella mostra solo la pagina corrente
+	private final Set<Long> selezionate = new HashSet<>();
+	private final ObservableList<Riga> righe = FXCollections.observableArrayList();
+	private final PauseTransition debounce = new PauseTransition(Duration.millis(250));
+
+	private Task<List<Ricetta>> ricercaTask;
+	private Task<List<Long>> selezioneTask;
+	private int generazione = 0;
+	private int generazioneSelezione = 0;
+	private int offset = 0;
+	private boolean tuttiCaricati = false;
+	private ScrollBar vbar;
 	
 	public AssociaRicetteController(SessioneDao sessioneDao,
+			RicettaDao ricettaDao,
 			int idSessionePresenza,
-			List<Ricetta> tutteLeRicette,
 			List<Ricetta> ricetteGiaAssociate) {
 
 		this.sessioneDao = Objects.requireNonNull(sessioneDao);
+		this.ricettaDao = Objects.requireNonNull(ricettaDao);
 		this.idSessionePresenza = idSessionePresenza;
-		this.tutteLeRicette = tutteLeRicette != null ? tutteLeRicette : Collections.emptyList();
 		this.ricetteGiaAssociate = ricetteGiaAssociate != null ? ricetteGiaAssociate : Collections.emptyList();
 
 		setTitle("Associa ricette alla sessione pratica");
@@ -48,16 +74,16 @@ public class AssociaRicetteController extends Dialog<List<Long>> {
 			if (bt != ButtonType.OK) {
 				return null;
 			}
-			List<Long> ids = new ArrayList<>();
-			for (Riga r : table.getItems()) {
-				if (r.checkedProperty().get()) {
-					ids.add(r.getIdRicetta());
-				}
-			}
+			List<Long> ids = new ArrayList<>(selezionate);
 			ids.sort(Long::compareTo);
 			return ids;
 		});
 
+		setOnHidden(e -> {
+			debounce.stop();
+			annullaRicerca();
+			annullaSelezione();
+		});
 	}
 
 	@FXML
@@ -76,35 +102,238 @@ public class AssociaRicetteController extends Dialog<List<Long>> {
 	    colChk.setEditable(true);
 
 	    colTempo.setCellValueFactory(c ->
-	            new ReadOnlyIntegerWrapper(c.getValue().getTempoPreparazione()));
+	            new ReadOnlyObjectWrapper<Number>(c.getValue().getTempoPreparazione()));
 
-	    Set<Long> preSel = new HashSet<>();
 	    for (Ricetta r : ricetteGiaAssociate) {
-	        preSel.add(r.getIdRicetta());
+	        selezionate.add(r.getIdRicetta());
+	    }
+	    aggiornaSelezionate();
+
+	    cbDifficolta.getItems().setAll(TUTTE);
+	    cbDifficolta.setValue(TUTTE);
+	    caricaDifficolta();
+
+	    table.setItems(righe);
+
+	    debounce.setOnFinished(e -> nuovaRicerca());
+	    txtCerca.textProperty().addListener((obs, oldV, newV) -> debounce.playFromStart());
+	    txtTempoMax.textProperty().addListener((obs, oldV, newV) -> debounce.playFromStart());
+	    cbDifficolta.valueProperty().addListener((obs, oldV, newV) -> nuovaRicerca());
+
+	    table.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+	        if (newSkin != null) {
+	            Platform.runLater(this::installScrollPaging);
+	        }
+	    });
+
+	    nuovaRicerca();
+	}
+
+	private void caricaDifficolta() {
+	    Async.run(ricettaDao::findDifficolta,
+	            valori -> {
+	                String scelta = cbDifficolta.getValue();
+	                List<String> voci = new ArrayList<>();
+	                voci.add(TUTTE);
+	                voci.addAll(valori);
+	                cbDifficolta.getItems().setAll(voci);
+	                cbDifficolta.setValue(voci.contains(scelta) ? scelta : TUTTE);
+	            },
+	            ex -> {
+	                // resta solo "Tutte": la ricerca per testo e tempo funziona comunque
+	                if (ex != null) {
+	                    ex.printStackTrace();
+	                }
+	            });
+	}
+
+	private void installScrollPaging() {
+	    if (vbar != null) {
+	        return;
+	    }
+	    for (Node n : table.lookupAll(".scroll-bar")) {
+	        if (n instanceof ScrollBar sb && sb.getOrientation() == Orientation.VERTICAL) {
+	            vbar = sb;
+	            vbar.valueProperty().addListener((obs, oldV, newV) -> caricaPaginaSeServe());
+	            vbar.visibleProperty().addListener((obs, oldV, newV) -> caricaPaginaSeServe());
+	            break;
+	        }
+	    }
+	    caricaPaginaSeServe();
+	}
+
+	private void nuovaRicerca() {
+	    debounce.stop();
+	    annullaRicerca();
+	    annullaSelezione();
+	    generazione++;
+	    offset = 0;
+	    tuttiCaricati = false;
+	    righe.clear();
+	    caricaPagina();
+	}
+
+	private void annullaRicerca() {
+	    Task<List<Ricetta>> t = ricercaTask;
+	    ricercaTask = null;
+	    if (t != null) {
+	        t.cancel();
+	    }
+	}
+
+	private void caricaPaginaSeServe() {
+	    if (tuttiCaricati || ricercaTask != null) {
+	        return;
+	    }
+	    boolean inFondo = vbar == null
+	            || !vbar.isVisible()
+	            || vbar.getValue() >= vbar.getMin() + (vbar.getMax() - vbar.getMin()) * SOGLIA_SCROLL;
+	    if (inFondo) {
+	        caricaPagina();
+	    }
+	}
+
+	private void caricaPagina() {
+	    if (tuttiCaricati || ricercaTask != null) {
+	        return;
 	    }
 
-	    ObservableList<Riga> righe = FXCollections.observableArrayList();
-	    for (Ricetta r : tutteLeRicette) {
+	    String testo = txtCerca.getText();
+	    String diff = TUTTE.equals(cbDifficolta.getValue()) ? null : cbDifficolta.getValue();
+	    Integer tempoMax = parseTempoMax(txtTempoMax.getText());
+	    int gen = generazione;
+	    int da = offset;
+
+	    Task<List<Ricetta>> task = Async.run(
+	            () -> ricettaDao.search(testo, diff, tempoMax, PAGE_SIZE, da),
+	            page -> {
+	                if (gen != generazione) {
+	                    return;
+	                }
+	                aggiungiPagina(page);
+	                Platform.runLater(this::caricaPaginaSeServe);
+	            },
+	            ex -> {
+	                if (gen != generazione) {
+	                    return;
+	                }
+	                tuttiCaricati = true;
+	                String msg = ex != null && ex.getMessage() != null ? ex.getMessage() : "Errore sconosciuto.";
+	                showErrorDark("Errore ricerca ricette", msg);
+	            });
+	    ricercaTask = task;
+	    task.stateProperty().addListener((obs, oldState, state) -> {
+	        if ((state == Worker.State.SUCCEEDED || state == Worker.State.FAILED || state == Worker.State.CANCELLED)
+	                && ricercaTask == task) {
+	            ricercaTask = null;
+	        }
+	    });
+	}
+
+	private void aggiungiPagina(List<Ricetta> page) {
+	    List<Ricetta> ricette = page != null ? page : Collections.emptyList();
+	    List<Riga> nuove = new ArrayList<>(ricette.size());
+	    for (Ricetta r : ricette) {
 	        Riga riga = new Riga(r);
-	        riga.checkedProperty().set(preSel.contains(r.getIdRicetta()));
-	        righe.add(riga);
+	        riga.checkedProperty().set(selezionate.contains(r.getIdRicetta()));
+	        riga.checkedProperty().addListener((obs, oldV, sel) -> {
+	            if (sel) {
+	                selezionate.add(riga.getIdRicetta());
+	            } else {
+	                selezionate.remove(riga.getIdRicetta());
+	            }
+	            aggiornaSelezionate();
+	        });
+	        nuove.add(riga);
 	    }
+	    righe.addAll(nuove);
+	    offset += ricette.size();
+	    tuttiCaricati = ricette.size() < PAGE_SIZE;
+	}
 
-	    table.setItems(righe);
+	private static Integer parseTempoMax(String s) {
+	    if (s == null || s.isBlank()) {
+	        return null;
+	    }
+	    try {
+	        int v = Integer.parseInt(s.trim());
+	        return v >= 0 ? v : null;
+	    } catch (NumberFormatException e) {
+	        return null;
+	    }
 	}
 
+	private void aggiornaSelezionate() {
+	    int n = selezionate.size();
+	    lblSelezionate.setText(n == 1 ? "1 selezionata" : n + " selezionate");
+	}
+
+	// agiscono su tutti i risultati della ricerca, non solo sulle pagine già caricate
 	@FXML
 	private void selectAll(ActionEvent e) {
-		for (Riga r : table.getItems()) {
-			r.checkedProperty().set(true);
+		String testo = txtCerca.getText();
+		String diff = TUTTE.equals(cbDifficolta.getValue()) ? null : cbDifficolta.getValue();
+		Integer tempoMax = parseTempoMax(txtTempoMax.getText());
+
+		annullaSelezione();
+		int gen = generazione;
+		int genSel = generazioneSelezione;
+
+		// finché la risposta non arriva il salvataggio vedrebbe una selezione incompleta
+		Node okBtn = getDialogPane().lookupButton(ButtonType.OK);
+		okBtn.setDisable(true);
+
+		Task<List<Long>> task = Async.run(() -> ricettaDao.searchIds(testo, diff, tempoMax),
+				ids -> {
+					if (gen != generazione || genSel != generazioneSelezione) {
+						return;
+					}
+					selezionate.addAll(ids);
+					for (Riga r : righe) {
+						if (selezionate.contains(r.getIdRicetta())) {
+							r.checkedProperty().set(true);
+						}
+					}
+					aggiornaSelezionate();
+				},
+				ex -> {
+					if (gen != generazione || genSel != generazioneSelezione) {
+						return;
+					}
+					String msg = ex != null && ex.getMessage() != null ? ex.getMessage() : "Errore sconosciuto.";
+					showErrorDark("Errore selezione ricette", msg);
+				});
+		selezioneTask = task;
+		task.stateProperty().addListener((obs, oldState, state) -> {
+			if (state == Worker.State.SUCCEEDED || state == Worker.State.FAILED || state == Worker.State.CANCELLED) {
+				if (selezioneTask == task) {
+					selezioneTask = null;
+				}
+				if (selezioneTask == null) {
+					okBtn.setDisable(false);
+				}
+			}
+		});
+	}
+
+	// il task potrebbe aver già finito con il risultato ancora da consegnare: lo scarta il contatore
+	private void annullaSelezione() {
+		generazioneSelezione++;
+		Task<List<Long>> t = selezioneTask;
+		selezioneTask = null;
+		if (t != null) {
+			t.cancel();
 		}
 	}
 
 	@FXML
 	private void selectNone(ActionEvent e) {
-		for (Riga r : table.getItems()) {
+		annullaSelezione();
+		selezionate.clear();
+		for (Riga r : righe) {
 			r.checkedProperty().set(false);
 		}
+		aggiornaSelezionate();
 	}
 
 	public void salvaSeConfermato(List<Long> result) {
@@ -112,64 +341,45 @@ public class AssociaRicetteController extends Dialog<List<Long>> {
 			return;
 		}
 
-		Set<Long> after = new HashSet<>(result);
-
-		try {
-			List<Ricetta> gia = sessioneDao.findRicetteBySessionePresenza(idSessionePresenza);
-			Set<Long> before = new HashSet<>();
-			if (gia != null) {
-				for (Ricetta r : gia) {
-					before.add(r.getIdRicetta());
-				}
-			}
-
-			if (before.equals(after)) {
-				return;
-			}
-
-			for (Long idAdd : after) {
-				if (!before.contains(idAdd)) {
-					sessioneDao.addRicettaToSessionePresenza(idSessionePresenza, idAdd);
-				}
-			}
-
-			for (Long idRem : before) {
-				if (!after.contains(idRem)) {
-					sessioneDao.removeRicettaFromSessionePresenza(idSessionePresenza, idRem);
-				}
-			}
-
-			showInfoDark("Operazione completata", "Associazioni ricette salvate correttamente.");
-		} catch (Exception ex) {
-			String msg = ex.getMessage() != null ? ex.getMessage() : "Errore sconosciuto.";
-			showErrorDark("Errore salvataggio", msg);
-		}
+		// come prima dell'ottimizzazione, il risultato è esattamente la selezione del dialog;
+		// il confronto con le associazioni attuali lo fa il database al momento del salvataggio
+		List<Long> ricette = new ArrayList<>(result);
+
+		Async.run(() -> sessioneDao.updateRicetteSessionePresenza(idSessionePresenza, ricette),
+				esito -> {
+					if (esito.aggiunte() > 0 || esito.rimosse() > 0) {
+						showInfoDark("Operazione completata", "Associazioni ricette salvate correttamente.");
+					}
+				},
+				ex -> {
+					String msg = ex != null && ex.getMessage() != null ? ex.getMessage() : "Errore sconosciuto.";
+					showErrorDark("Errore salvataggio", msg);
+				});
 	}
 
 
 	public static class Riga {
 		private final long idRicetta;
 		private final BooleanProperty checked = new SimpleBooleanProperty(false);
-		private final StringProperty nome = new SimpleStringProperty();
-		private final StringProperty descrizione = new SimpleStringProperty();
-		private final StringProperty difficolta = new SimpleStringProperty();
-		private final IntegerProperty tempoPreparazione = new SimpleIntegerProperty();
+		private final String nome;
+		private final String descrizione;
+		private final String difficolta;
+		private final Integer tempoPreparazione;
 
 		public Riga(Ricetta r) {
 			this.idRicetta = r.getIdRicetta();
-			nome.set(r.getNome() != null ? r.getNome() : "");
-			descrizione.set(r.getDescrizione() != null ? r.getDescrizione() : "");
-			difficolta.set(r.getDifficolta() != null ? r.getDifficolta() : "");
-			Integer tp = r.getTempoPreparazione();
-			tempoPreparazione.set(tp != null && tp >= 0 ? tp : 0);
+			nome = r.getNome() != null ? r.getNome() : "";
+			descrizione = r.getDescrizione() != null ? r.getDescrizione() : "";
+			difficolta = r.getDifficolta() != null ? r.getDifficolta() : "";
+			tempoPreparazione = r.getTempoPreparazione();
 		}
 
 
 		public long getIdRicetta() { return idRicetta; }
-		public String getNome() { return nome.get(); }
-		public String getDescrizione() { return descrizione.get(); }
-		public String getDifficolta() { return difficolta.get(); }
-		public int getTempoPreparazione() { return tempoPreparazione.get(); }
+		public String getNome() { return nome; }
+		public String getDescrizione() { return descrizione; }
+		public String getDifficolta() { return difficolta; }
+		public Integer getTempoPreparazione() { return tempoPreparazione; }
 		public BooleanProperty checkedProperty() { return checked; }
 	}
 
@@ -7,14 +7,21 @@ import it.unina.foodlab.model.Corso;
 import it.unina.foodlab.model.Ricetta;
 import it.unina.foodlab.model.Sessione;
 import it.unina.foodlab.model.SessionePresenza;
+import it.unina.foodlab.util.Async;
+import it.unina.foodlab.util.Notifiche;
+import it.unina.foodlab.util.Viste;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.Parent;
@@ -25,14 +32,24 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class CorsiPanelController {
 
 	private static final String ALL_OPTION = "Tutte";
+	private static final int PAGE_SIZE = CorsoDao.DEFAULT_PAGE_SIZE;
+	private static final double SOGLIA_SCROLL = 0.85;
+
+	private static final String FXML_REPORT = "/it/unina/foodlab/ui/Report.fxml";
+	private static final String FXML_EDITOR = "/it/unina/foodlab/ui/CorsiEditorDialog.fxml";
+	private static final String FXML_WIZARD = "/it/unina/foodlab/ui/SessioniWizard.fxml";
+	private static final String FXML_PREVIEW = "/it/unina/foodlab/ui/SessioniPreview.fxml";
+	private static final String FXML_ASSOCIA = "/it/unina/foodlab/ui/AssociaRicette.fxml";
 
 	private final ObservableList<String> argomentiCondivisi = FXCollections.observableArrayList();
 
@@ -40,6 +57,8 @@ public class CorsiPanelController {
 	@FXML private TableView<Corso> table;
 	@FXML private Button btnEdit, btnDelete, btnAssocRicette;
 	@FXML private TableColumn<Corso, String> colStato;
+	@FXML private ProgressIndicator busyIndicator;
+	@FXML private Button btnAnnullaBusy;
 
 	private final ObservableList<Corso> backing = FXCollections.observableArrayList();
 	private final FilteredList<Corso> filtered = new FilteredList<>(backing, c -> true);
@@ -51,6 +70,24 @@ public class CorsiPanelController {
 
 	private String filtroArg = null;
 
+	private final Set<Task<?>> inCorso = new HashSet<>();
+	private final Set<Task<?>> annullabili = new HashSet<>();
+	private Task<?> reloadTask;
+	private Task<?> pageTask;
+	private Corso cursore;
+	private boolean tuttiCaricati = true;
+	private ScrollBar vbar;
+
+	private Long versioneSync;
+	private Task<?> syncTask;
+	private boolean syncDiNuovo = false;
+	private final PauseTransition notificheDebounce = new PauseTransition(Duration.millis(150));
+	private final Consumer<Notifiche.Evento> notificheListener = e -> Platform.runLater(() -> onNotifica(e));
+
+	private record Caricamento(long versione, List<Corso> corsi, List<String> argomenti) {}
+
+	private record Sincronizzazione(CorsoDao.Delta delta, List<String> argomenti) {}
+
 	@FXML
 	private void initialize() {
 		colStato.setCellValueFactory(cd ->
@@ -82,9 +119,76 @@ public class CorsiPanelController {
 			refreshTitleWithCount();
 		});
 
+		table.skinProperty().addListener((obs, oldSkin, skin) -> {
+			if (skin != null) {
+				Platform.runLater(this::installScrollPaging);
+			}
+		});
+
+		refreshTitleWithCount();
+	}
+
+	private void installScrollPaging() {
+		if (vbar != null) {
+			return;
+		}
+		for (Node n : table.lookupAll(".scroll-bar")) {
+			if (n instanceof ScrollBar sb && sb.getOrientation() == Orientation.VERTICAL) {
+				vbar = sb;
+				vbar.valueProperty().addListener((obs, oldV, newV) -> loadNextPageIfNeeded());
+				vbar.visibleProperty().addListener((obs, oldV, newV) -> loadNextPageIfNeeded());
+				break;
+			}
+		}
+		loadNextPageIfNeeded();
+	}
+
+	private void loadNextPageIfNeeded() {
+		if (tuttiCaricati || pageTask != null || reloadTask != null || corsoDao == null) {
+			return;
+		}
+		boolean inFondo = vbar == null
+				|| !vbar.isVisible()
+				|| vbar.getValue() >= vbar.getMin() + (vbar.getMax() - vbar.getMin()) * SOGLIA_SCROLL;
+		if (inFondo) {
+			loadNextPage();
+		}
+	}
+
+	private void loadNextPage() {
+		Corso after = cursore;
+		Task<List<Corso>> task = carica(() -> corsoDao.findPage(after, PAGE_SIZE),
+				page -> {
+					appendPage(page);
+					Platform.runLater(this::loadNextPageIfNeeded);
+				},
+				"Errore durante il caricamento dei corsi: ");
+		pageTask = task;
+		task.stateProperty().addListener((obs, oldState, state) -> {
+			if (isTerminato(state) && pageTask == task) {
+				pageTask = null;
+			}
+		});
+	}
+
+	private void appendPage(List<Corso> page) {
+		List<Corso> righe = page != null ? page : Collections.emptyList();
+		if (!righe.isEmpty()) {
+			cursore = righe.get(righe.size() - 1);
+			backing.addAll(righe);
+		}
+		tuttiCaricati = righe.size() < PAGE_SIZE;
 		refreshTitleWithCount();
 	}
 
+	private boolean giaNellePagineCaricate(Corso c) {
+		if (tuttiCaricati || cursore == null) {
+			return true;
+		}
+		int cmp = c.getDataInizio().compareTo(cursore.getDataInizio());
+		return cmp > 0 || (cmp == 0 && c.getIdCorso() > cursore.getIdCorso());
+	}
+
 	private String statoOf(Corso c) {
 		if (c == null) return "";
 		LocalDate oggi = LocalDate.now();
@@ -110,14 +214,27 @@ public class CorsiPanelController {
 	private void refreshTitleWithCount() {
 		if (table == null || table.getScene() == null) return;
 		if (table.getScene().getWindow() instanceof Stage st) {
-			st.setTitle("Corsi • " + filtered.size() + " elementi");
+			st.setTitle("Corsi • " + filtered.size() + (tuttiCaricati ? "" : "+") + " elementi");
 		}
 	}
 
 	public void setDaos(CorsoDao corsoDao, SessioneDao sessioneDao) {
 		this.corsoDao = corsoDao;
 		this.sessioneDao = sessioneDao;
+		Notifiche.rimuoviListener(notificheListener);
+		Notifiche.aggiungiListener(notificheListener);
+		notificheDebounce.setOnFinished(e -> sincronizza());
 		reload();
+		Viste.preriscalda(FXML_PREVIEW, FXML_EDITOR, FXML_WIZARD);
+	}
+
+	private void onNotifica(Notifiche.Evento e) {
+		if (corsoDao == null) {
+			return;
+		}
+		if (e.isTutto() || "corso".equals(e.tabella())) {
+			notificheDebounce.playFromStart();
+		}
 	}
 
 	@FXML
@@ -126,23 +243,181 @@ public class CorsiPanelController {
 			showError("DAO non inizializzato. Effettua il login.");
 			return;
 		}
-		try {
-			List<Corso> list = corsoDao.findAll();
-			if (list == null) {
-				list = Collections.emptyList();
+		if (versioneSync == null) {
+			caricaTutto();
+		} else {
+			sincronizza();
+		}
+	}
+
+	private void caricaTutto() {
+		if (reloadTask != null) {
+			reloadTask.cancel();
+		}
+		if (pageTask != null) {
+			pageTask.cancel();
+		}
+		Task<Caricamento> task = carica(
+				() -> {
+					long versione = corsoDao.versioneCorrente();
+					return new Caricamento(versione, corsoDao.findPage(null, PAGE_SIZE), corsoDao.findDistinctArgomenti());
+				},
+				res -> {
+					versioneSync = res.versione();
+					cursore = null;
+					backing.clear();
+					appendPage(res.corsi());
+					argomentiCondivisi.setAll(res.argomenti() != null ? res.argomenti() : Collections.emptyList());
+
+					refilter();
+					populateFiltroArgomento();
+					refreshTitleWithCount();
+					Platform.runLater(this::loadNextPageIfNeeded);
+				},
+				"Errore durante il caricamento dei corsi: ");
+		reloadTask = task;
+		task.stateProperty().addListener((obs, oldState, state) -> {
+			if (isTerminato(state) && reloadTask == task) {
+				reloadTask = null;
+				if (syncDiNuovo) {
+					syncDiNuovo = false;
+					sincronizza();
+				}
 			}
-			backing.setAll(list);
+		});
+	}
 
-			refreshArgomentiCondivisi();
+	private void sincronizza() {
+		if (versioneSync == null) {
+			return;
+		}
+		if (syncTask != null || reloadTask != null) {
+			syncDiNuovo = true;
+			return;
+		}
 
-			refilter();
-			populateFiltroArgomento();
-			refreshTitleWithCount();
-		} catch (Exception ex) {
-			showError("Errore durante il caricamento dei corsi: " + ex.getMessage());
+		long da = versioneSync;
+		Task<Sincronizzazione> task = inBackground(
+				() -> new Sincronizzazione(corsoDao.findChangedSince(da), corsoDao.findDistinctArgomenti()),
+				res -> {
+					applicaDelta(res.delta());
+					argomentiCondivisi.setAll(res.argomenti() != null ? res.argomenti() : Collections.emptyList());
+					populateFiltroArgomento();
+					refreshTitleWithCount();
+				},
+				ex -> showError("Errore durante l'aggiornamento dei corsi: " + messageOf(ex)));
+		syncTask = task;
+		task.stateProperty().addListener((obs, oldState, state) -> {
+			if (isTerminato(state) && syncTask == task) {
+				syncTask = null;
+				if (syncDiNuovo) {
+					syncDiNuovo = false;
+					sincronizza();
+				}
+			}
+		});
+	}
+
+	private void applicaDelta(CorsoDao.Delta delta) {
+		if (versioneSync == null) {
+			return;
+		}
+		versioneSync = Math.max(versioneSync, delta.versione());
+
+		if (!delta.eliminati().isEmpty()) {
+			Set<Long> eliminati = new HashSet<>(delta.eliminati());
+			backing.removeIf(c -> eliminati.contains(c.getIdCorso()));
+		}
+		if (delta.modificati().isEmpty()) {
+			return;
+		}
+
+		Map<Long, Integer> posizioni = new HashMap<>();
+		for (int i = 0; i < backing.size(); i++) {
+			posizioni.put(backing.get(i).getIdCorso(), i);
+		}
+
+		List<Long> usciti = new ArrayList<>();
+		List<Corso> nuovi = new ArrayList<>();
+		for (Corso c : delta.modificati()) {
+			Integer i = posizioni.get(c.getIdCorso());
+			boolean visibile = giaNellePagineCaricate(c);
+			if (i != null && visibile) {
+				backing.set(i, c);
+			} else if (i != null) {
+				usciti.add(c.getIdCorso());
+			} else if (visibile) {
+				nuovi.add(c);
+			}
+		}
+		if (!usciti.isEmpty()) {
+			Set<Long> ids = new HashSet<>(usciti);
+			backing.removeIf(c -> ids.contains(c.getIdCorso()));
+		}
+		backing.addAll(nuovi);
+	}
+
+	private void upsertCorso(Corso c) {
+		for (int i = 0; i < backing.size(); i++) {
+			if (backing.get(i).getIdCorso() == c.getIdCorso()) {
+				backing.set(i, c);
+				return;
+			}
+		}
+		if (giaNellePagineCaricate(c)) {
+			backing.add(c);
+		}
+	}
+
+	@FXML
+	private void onCancelBusy() {
+		for (Task<?> t : new ArrayList<>(annullabili)) {
+			t.cancel();
+		}
+	}
+
+	private <T> Task<T> carica(Async.DbCall<T> call, Consumer<T> onSuccess, String erroreMsg) {
+		Task<T> task = inBackground(call, onSuccess, ex -> showError(erroreMsg + messageOf(ex)));
+		annullabili.add(task);
+		updateBusy();
+		return task;
+	}
+
+	private <T> Task<T> inBackground(Async.DbCall<T> call, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+		Task<T> task = Async.run(call, onSuccess, onError);
+		inCorso.add(task);
+		task.stateProperty().addListener((obs, oldState, state) -> {
+			if (isTerminato(state)) {
+				inCorso.remove(task);
+				annullabili.remove(task);
+				updateBusy();
+			}
+		});
+		updateBusy();
+		return task;
+	}
+
+	private static boolean isTerminato(Worker.State state) {
+		return state == Worker.State.SUCCEEDED || state == Worker.State.FAILED || state == Worker.State.CANCELLED;
+	}
+
+	private void updateBusy() {
+		boolean busy = !inCorso.isEmpty();
+		boolean annullabile = !annullabili.isEmpty();
+		if (busyIndicator != null) {
+			busyIndicator.setVisible(busy);
+			busyIndicator.setManaged(busy);
+		}
+		if (btnAnnullaBusy != null) {
+			btnAnnullaBusy.setVisible(annullabile);
+			btnAnnullaBusy.setManaged(annullabile);
 		}
 	}
 
+	private static String messageOf(Throwable ex) {
+		return ex == null ? "" : ex.getMessage();
+	}
+
 
 
 	private void populateFiltroArgomento() {
@@ -199,11 +474,8 @@ public class CorsiPanelController {
 		String cf = corsoDao.getOwnerCfChef();
 
 		try {
-		    FXMLLoader loader = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/Report.fxml"));
 		    ReportController ctrl = new ReportController(cf);
-		    loader.setController(ctrl);
-
-		    Parent reportRoot = loader.load();
+		    Parent reportRoot = Viste.carica(FXML_REPORT, ctrl).root();
 
 		    Stage stage = (Stage) table.getScene().getWindow();
 		    Scene scene = stage.getScene();
@@ -228,18 +500,22 @@ public class CorsiPanelController {
 	@FXML
 	private void onEdit() {
 		Corso sel = table.getSelectionModel().getSelectedItem();
+		if (sel == null) {
+			return;
+		}
 
-		try {
-			List<Sessione> esistenti = sessioneDao.findByCorso(sel.getIdCorso());
-			if (esistenti == null) {
-				esistenti = Collections.emptyList();
-			}
+		carica(() -> sessioneDao.findByCorso(sel.getIdCorso()),
+				esistenti -> openEditWizard(sel, esistenti != null ? esistenti : Collections.emptyList()),
+				"Errore modifica sessioni: ");
+	}
 
-			FXMLLoader fx = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/SessioniWizard.fxml"));
-			DialogPane pane = fx.load();
+	private void openEditWizard(Corso sel, List<Sessione> esistenti) {
+		try {
+			Viste.Vista<SessioniWizardController> vista = Viste.prendi(FXML_WIZARD);
+			DialogPane pane = (DialogPane) vista.root();
 			pane.getStyleClass().add("dark-dialog");
 
-			SessioniWizardController ctrl = fx.getController();
+			SessioniWizardController ctrl = vista.controller();
 			ctrl.initWithCorsoAndExisting(sel, esistenti);
 
 			Node content = pane.getContent();
@@ -268,8 +544,13 @@ public class CorsiPanelController {
 
 			Optional<List<Sessione>> res = dlg.showAndWait();
 			if (res.isPresent() && res.get() != null) {
-				sessioneDao.replaceForCorso(sel.getIdCorso(), res.get());
-				showInfoDark("Sessioni aggiornate.");
+				List<Sessione> nuove = res.get();
+				inBackground(() -> {
+							sessioneDao.replaceForCorso(sel.getIdCorso(), nuove);
+							return null;
+						},
+						v -> showInfoDark("Sessioni aggiornate."),
+						ex -> showError("Errore modifica sessioni: " + messageOf(ex)));
 			}
 		} catch (Exception e) {
 			showError("Errore modifica sessioni: " + e.getMessage());
@@ -281,13 +562,13 @@ public class CorsiPanelController {
 	@FXML
 	public void onNew() {
 	    try {
-	        FXMLLoader fx = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/CorsiEditorDialog.fxml"));
 	        refreshArgomentiCondivisi();
 
-	        DialogPane pane = fx.load();
+	        Viste.Vista<CorsoEditorDialogController> vista = Viste.prendi(FXML_EDITOR);
+	        DialogPane pane = (DialogPane) vista.root();
 	        pane.getStyleClass().add("dark-dialog");
 
-	        CorsoEditorDialogController ctrl = fx.getController();
+	        CorsoEditorDialogController ctrl = vista.controller();
 	        ctrl.bindArgomenti(argomentiCondivisi);
 	        
 	        Dialog<Corso> dialog = new Dialog<>();
@@ -318,34 +599,40 @@ public class CorsiPanelController {
 	            return;
 	        }
 
-	        long id = corsoDao.insertWithSessions(nuovo, sessions);
-
-	        Corso salvato = corsoDao.findById(id);
-	        if (salvato == null) {
-	            nuovo.setIdCorso(id);
-	            salvato = nuovo;
-	        }
-
-	        backing.add(salvato);
-	        table.getSelectionModel().select(salvato);
-
-	        String arg = salvato.getArgomento();
-	        if (arg != null) {
-	            arg = arg.trim();
-	            if (!arg.isEmpty() && !argomentiCondivisi.contains(arg)) {
-	                argomentiCondivisi.add(arg);
-	                FXCollections.sort(argomentiCondivisi);
-	            }
-	        }
-
-	        populateFiltroArgomento();
-	        refreshTitleWithCount();
+	        inBackground(() -> {
+	                    long id = corsoDao.insertWithSessions(nuovo, sessions);
+	                    Corso trovato = corsoDao.findById(id);
+	                    if (trovato == null) {
+	                        nuovo.setIdCorso(id);
+	                        trovato = nuovo;
+	                    }
+	                    return trovato;
+	                },
+	                this::onCorsoSalvato,
+	                ex -> showError("Errore apertura/salvataggio corso: " + messageOf(ex)));
 	    } catch (Exception ex) {
 	        showError("Errore apertura/salvataggio corso: " + ex.getMessage());
 	        ex.printStackTrace();
 	    }
 	}
 
+	private void onCorsoSalvato(Corso salvato) {
+	    upsertCorso(salvato);
+	    table.getSelectionModel().select(salvato);
+
+	    String arg = salvato.getArgomento();
+	    if (arg != null) {
+	        arg = arg.trim();
+	        if (!arg.isEmpty() && !argomentiCondivisi.contains(arg)) {
+	            argomentiCondivisi.add(arg);
+	            FXCollections.sort(argomentiCondivisi);
+	        }
+	    }
+
+	    populateFiltroArgomento();
+	    refreshTitleWithCount();
+	}
+
 	@FXML
 	private void onDelete() {
 		Corso sel = table.getSelectionModel().getSelectedItem();
@@ -358,14 +645,16 @@ public class CorsiPanelController {
 			return;
 		}
 
-		try {
-			corsoDao.delete(sel.getIdCorso());
-			backing.remove(sel);
-			populateFiltroArgomento();
-			refreshTitleWithCount();
-		} catch (Exception ex) {
-			showInfoDark("Impossibile eliminare il corso: " + ex.getMessage());
-		}
+		inBackground(() -> {
+					corsoDao.delete(sel.getIdCorso());
+					return null;
+				},
+				v -> {
+					backing.remove(sel);
+					populateFiltroArgomento();
+					refreshTitleWithCount();
+				},
+				ex -> showInfoDark("Impossibile eliminare il corso: " + messageOf(ex)));
 	}
 
 
@@ -373,16 +662,18 @@ public class CorsiPanelController {
 		if (corso == null) {
 			return;
 		}
+		carica(() -> sessioneDao.findByCorso(corso.getIdCorso()),
+				sessions -> showSessioniPreview(corso, sessions),
+				"Errore apertura anteprima sessioni: ");
+	}
+
+	private void showSessioniPreview(Corso corso, List<Sessione> sessions) {
 		try {
-			FXMLLoader l = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/SessioniPreview.fxml"));
-			DialogPane pane = l.load();
+			Viste.Vista<SessioniPreviewController> vista = Viste.prendi(FXML_PREVIEW);
+			DialogPane pane = (DialogPane) vista.root();
 			pane.getStyleClass().add("dark-dialog");
 
-			SessioniPreviewController ctrl = l.getController();
-			long id = corso.getIdCorso();
-
-			List<Sessione> sessions = sessioneDao.findByCorso(id);
-
+			SessioniPreviewController ctrl = vista.controller();
 			ctrl.init(corso, sessions, sessioneDao);
 
 			Dialog<Void> dlg = new Dialog<>();
@@ -398,86 +689,80 @@ public class CorsiPanelController {
 		}
 	}
 
-@FXML
-private void onAssociateRecipes() {
-    Corso sel = table.getSelectionModel().getSelectedItem();
-    if (sel == null) {
-        return;
-    }
-
-    try {
-        List<Sessione> tutte = sessioneDao.findByCorso(sel.getIdCorso());
-        if (tutte == null) {
-            tutte = Collections.emptyList();
-        }
-
-        List<SessionePresenza> presenze = new ArrayList<>();
-        for (Sessione s : tutte) {
-            if (s instanceof SessionePresenza sp) {
-                presenze.add(sp);
-            }
-        }
-
-        if (presenze.isEmpty()) {
-            showInfoDark("Il corso non ha sessioni in presenza.");
-            return;
-        }
-
-        SessionePresenza target;
-        if (presenze.size() == 1) {
-            target = presenze.get(0);
-        } else {
-            target = choosePresenza(presenze).orElse(null);
-        }
-
-        if (target == null) {
-            return;
-        }
-
-        if (ricettaDao == null) {
-            ricettaDao = new RicettaDao();
-        }
-
-        List<Ricetta> tutteLeRicette = ricettaDao.findAll();
-        if (tutteLeRicette == null) {
-            tutteLeRicette = Collections.emptyList();
-        }
-
-        List<Ricetta> associate = sessioneDao.findRicetteBySessionePresenza(target.getId());
-        if (associate == null) {
-            associate = Collections.emptyList();
-        }
-
-        FXMLLoader fx = new FXMLLoader(
-                getClass().getResource("/it/unina/foodlab/ui/AssociaRicette.fxml")
-        );
-
-        AssociaRicetteController dlg = new AssociaRicetteController(
-                sessioneDao,
-                target.getId(),
-                tutteLeRicette,
-                associate
-        );
-        fx.setController(dlg);
-
-        fx.load();
-
-        Optional<List<Long>> result = dlg.showAndWait();
-        dlg.salvaSeConfermato(result.orElse(null));
-
-    } catch (Exception e) {
-        showError("Errore associazione ricette: " + e.getMessage());
-        e.printStackTrace();
-    }
-}
+	@FXML
+	private void onAssociateRecipes() {
+		Corso sel = table.getSelectionModel().getSelectedItem();
+		if (sel == null) {
+			return;
+		}
+
+		carica(() -> sessioneDao.findByCorso(sel.getIdCorso()),
+				tutte -> {
+					List<SessionePresenza> presenze = new ArrayList<>();
+					if (tutte != null) {
+						for (Sessione s : tutte) {
+							if (s instanceof SessionePresenza sp) {
+								presenze.add(sp);
+							}
+						}
+					}
+
+					if (presenze.isEmpty()) {
+						showInfoDark("Il corso non ha sessioni in presenza.");
+						return;
+					}
+
+					SessionePresenza target;
+					if (presenze.size() == 1) {
+						target = presenze.get(0);
+					} else {
+						target = choosePresenza(presenze).orElse(null);
+					}
+
+					if (target != null) {
+						loadRicetteAndAssociate(target);
+					}
+				},
+				"Errore associazione ricette: ");
+	}
+
+	private void loadRicetteAndAssociate(SessionePresenza target) {
+		if (ricettaDao == null) {
+			ricettaDao = new RicettaDao();
+		}
+
+		carica(() -> sessioneDao.findRicetteBySessionePresenza(target.getId()),
+				associate -> openAssociaRicette(target,
+						associate != null ? associate : Collections.emptyList()),
+				"Errore associazione ricette: ");
+	}
+
+	private void openAssociaRicette(SessionePresenza target, List<Ricetta> associate) {
+		try {
+			AssociaRicetteController dlg = new AssociaRicetteController(
+					sessioneDao,
+					ricettaDao,
+					target.getId(),
+					associate
+					);
+			Viste.carica(FXML_ASSOCIA, dlg);
+
+			Optional<List<Long>> result = dlg.showAndWait();
+			dlg.salvaSeConfermato(result.orElse(null));
+
+		} catch (Exception e) {
+			showError("Errore associazione ricette: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
 
 	private Optional<List<Sessione>> openSessioniWizard(Corso corso, int initialRows) {
 		try {
-			FXMLLoader fx = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/SessioniWizard.fxml"));
-			DialogPane pane = fx.load();
+			Viste.Vista<SessioniWizardController> vista = Viste.prendi(FXML_WIZARD);
+			DialogPane pane = (DialogPane) vista.root();
 			pane.getStyleClass().add("dark-dialog");
 
-			SessioniWizardController ctrl = fx.getController();
+			SessioniWizardController ctrl = vista.controller();
 			if (initialRows > 0) {
 				ctrl.initWithCorsoAndBlank(corso, initialRows);
 			} else {
@@ -606,12 +891,9 @@ private void onAssociateRecipes() {
 
 
 	private void refreshArgomentiCondivisi() {
-		try {
-			List<String> distinct = corsoDao.findDistinctArgomenti();
-			argomentiCondivisi.setAll(distinct != null ? distinct : Collections.emptyList());
-		} catch (Exception ex) {
-			ex.printStackTrace();
-		}
+		inBackground(corsoDao::findDistinctArgomenti,
+				distinct -> argomentiCondivisi.setAll(distinct != null ? distinct : Collections.emptyList()),
+				null);
 	}
 
 	private Alert makeDarkAlert(Alert.AlertType type, String title, String message) {
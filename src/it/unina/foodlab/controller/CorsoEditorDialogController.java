@@ -1,13 +1,19 @@
 package it.unina.foodlab.controller;
 
 import it.unina.foodlab.model.Corso;
+import it.unina.foodlab.util.Async;
+import it.unina.foodlab.util.AutocompleteIndex;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class CorsoEditorDialogController {
@@ -21,7 +27,16 @@ public class CorsoEditorDialogController {
     @FXML private DialogPane dialogPane;
 
     private static final DateTimeFormatter UI_DF = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int MAX_SUGGERIMENTI = 12;
+    // lunghezza di corso.argomento
+    private static final int MAX_ARGOMENTO = 100;
+
     private ObservableList<String> argomentiShared;
+    private final ObservableList<String> suggerimenti = FXCollections.observableArrayList();
+    private AutocompleteIndex indiceArgomenti = new AutocompleteIndex(List.of());
+    private int versioneIndice = 0;
+    private boolean aggiornandoSuggerimenti = false;
+    private final ListChangeListener<String> argomentiListener = ch -> ricostruisciIndice(argomentiShared);
 
     @FXML
     private void initialize() {
@@ -36,11 +51,17 @@ public class CorsoEditorDialogController {
         dpInizio.valueProperty().addListener((o, a, b) -> updateDataFine());
         spNumSess.valueProperty().addListener((o, a, b) -> updateDataFine());
 
+        cbArg.setEditable(true);
+        cbArg.setItems(suggerimenti);
+        cbArg.getEditor().textProperty().addListener((o, a, testo) -> aggiornaSuggerimenti(testo));
+
         Button okBtn = (Button) dialogPane.lookupButton(createButtonType);
         okBtn.addEventFilter(ActionEvent.ACTION, evt -> {
             if (!isFormValid()) {
                 evt.consume();
                 showValidationMessage();
+            } else if (!confermaArgomentoNuovo()) {
+                evt.consume();
             }
         });
 
@@ -49,7 +70,7 @@ public class CorsoEditorDialogController {
     public Corso getResult() {
         Corso c = new Corso();
 
-        c.setArgomento(cbArg.getValue());
+        c.setArgomento(argomentoCorrente());
         c.setFrequenza(cbFreq.getValue());
         c.setDataInizio(dpInizio.getValue());
 
@@ -90,21 +111,86 @@ public class CorsoEditorDialogController {
                 showWarning("Avvertenza", "L'argomento non può essere vuoto.");
                 return;
             }
+            if (trimmed.length() > MAX_ARGOMENTO) {
+                showWarning("Avvertenza", "L'argomento può avere al massimo " + MAX_ARGOMENTO + " caratteri.");
+                return;
+            }
 
-            ObservableList<String> target =
-                    (argomentiShared != null) ? argomentiShared : cbArg.getItems();
-
-            if (target.contains(trimmed)) {
+            if (argomentiShared != null && argomentiShared.contains(trimmed)) {
                 showWarning("Informazione", "L'argomento \"" + trimmed + "\" esiste già.");
                 return;
             }
 
-            target.add(trimmed);
-            FXCollections.sort(target);
+            aggiungiArgomento(trimmed);
             cbArg.setValue(trimmed);
+            cbArg.getEditor().setText(trimmed);
         });
     }
 
+    // il campo è editabile per l'autocompletamento: un testo che non corrisponde a nessun
+    // argomento esistente diventa un argomento nuovo solo dopo conferma, come con il pulsante "+"
+    private boolean confermaArgomentoNuovo() {
+        String arg = argomentoCorrente();
+        if (esisteArgomento(arg)) {
+            return true;
+        }
+        if (arg.length() > MAX_ARGOMENTO) {
+            showWarning("Avvertenza", "L'argomento può avere al massimo " + MAX_ARGOMENTO + " caratteri.");
+            return false;
+        }
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Nuovo argomento");
+        alert.setHeaderText(null);
+        alert.setGraphic(null);
+
+        Label content = new Label("L'argomento \"" + arg + "\" non esiste ancora. Crearlo?");
+        content.setWrapText(true);
+        alert.getDialogPane().setContent(content);
+
+        DialogPane pane = alert.getDialogPane();
+        pane.getStyleClass().add("dark-dialog");
+        pane.getStylesheets().add(
+                getClass().getResource("/it/unina/foodlab/util/dark-theme.css").toExternalForm()
+        );
+        pane.setMinWidth(460);
+
+        ButtonType crea = new ButtonType("Crea", ButtonBar.ButtonData.OK_DONE);
+        ButtonType annulla = new ButtonType("Annulla", ButtonBar.ButtonData.CANCEL_CLOSE);
+        alert.getButtonTypes().setAll(crea, annulla);
+
+        if (alert.showAndWait().orElse(annulla) != crea) {
+            return false;
+        }
+        aggiungiArgomento(arg);
+        return true;
+    }
+
+    // l'indice viene costruito in background: finché non è pronto si guarda la lista
+    private boolean esisteArgomento(String arg) {
+        if (indiceArgomenti.canonico(arg) != null) {
+            return true;
+        }
+        if (argomentiShared == null) {
+            return false;
+        }
+        String chiave = AutocompleteIndex.fold(arg);
+        for (String a : argomentiShared) {
+            if (a != null && AutocompleteIndex.fold(a).equals(chiave)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void aggiungiArgomento(String argomento) {
+        if (argomentiShared == null) {
+            bindArgomenti(FXCollections.observableArrayList());
+        }
+        argomentiShared.add(argomento);
+        FXCollections.sort(argomentiShared);
+    }
+
     private void updateDataFine() {
         int n = spNumSess.getValue();
         LocalDate fine = computeDataFine(
@@ -134,7 +220,7 @@ public class CorsoEditorDialogController {
     }
 
     private boolean isFormValid() {
-        String arg = cbArg.getValue();
+        String arg = argomentoCorrente();
         if (arg == null || arg.isBlank()) {
             return false;
         }
@@ -179,6 +265,61 @@ public class CorsoEditorDialogController {
 
     public void bindArgomenti(ObservableList<String> shared) {
         argomentiShared = shared;
-        cbArg.setItems(shared);
+        if (shared == null) {
+            return;
+        }
+        // la lista è del pannello e sopravvive al dialog
+        shared.addListener(new WeakListChangeListener<>(argomentiListener));
+        ricostruisciIndice(shared);
+    }
+
+    private void ricostruisciIndice(List<String> argomenti) {
+        List<String> copia = new ArrayList<>(argomenti);
+        int versione = ++versioneIndice;
+        // con molti argomenti la costruzione non è istantanea: la si fa fuori dal thread FX
+        Async.run(() -> new AutocompleteIndex(copia), indice -> {
+            if (versione != versioneIndice) {
+                return;
+            }
+            indiceArgomenti = indice;
+            aggiornaSuggerimenti(cbArg.getEditor().getText());
+        }, null);
+    }
+
+    private void aggiornaSuggerimenti(String testo) {
+        if (aggiornandoSuggerimenti) {
+            return;
+        }
+        aggiornandoSuggerimenti = true;
+        try {
+            TextField editor = cbArg.getEditor();
+            String corrente = editor.getText();
+            int caret = editor.getCaretPosition();
+
+            suggerimenti.setAll(indiceArgomenti.suggerisci(testo, MAX_SUGGERIMENTI));
+
+            // setAll può riscrivere l'editor con la selezione corrente
+            if (!Objects.equals(corrente, editor.getText())) {
+                editor.setText(corrente);
+                editor.positionCaret(Math.min(caret, corrente == null ? 0 : corrente.length()));
+            }
+            if (editor.isFocused() && !suggerimenti.isEmpty()) {
+                cbArg.show();
+            }
+        } finally {
+            aggiornandoSuggerimenti = false;
+        }
+    }
+
+    private String argomentoCorrente() {
+        String testo = cbArg.getEditor().getText();
+        if (testo == null || testo.isBlank()) {
+            testo = cbArg.getValue();
+        }
+        if (testo == null || testo.isBlank()) {
+            return null;
+        }
+        String canonico = indiceArgomenti.canonico(testo);
+        return canonico != null ? canonico : testo.trim();
     }
 }
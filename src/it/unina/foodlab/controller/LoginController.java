@@ -4,6 +4,8 @@ import it.unina.foodlab.dao.ChefDao;
 import it.unina.foodlab.dao.CorsoDao;
 import it.unina.foodlab.dao.SessioneDao;
 import it.unina.foodlab.model.Chef;
+import it.unina.foodlab.util.Async;
+import it.unina.foodlab.util.PasswordHasher;
 import javafx.animation.FadeTransition;
 import javafx.animation.PauseTransition;
 import javafx.animation.SequentialTransition;
@@ -129,27 +131,35 @@ public class LoginController {
 
         setBusy(true);
 
-        try {
-            boolean authenticated = chefDao.authenticate(username, password);
-            if (!authenticated) {
-                showError("Username o password errati.");
-                shake(card);
-                return;
-            }
-            Chef chef = chefDao.findByUsername(username);
-            String cf = chef.getCF_Chef().trim();
-
-            CorsoDao corsoDao = new CorsoDao(cf);
-            SessioneDao sessioneDao = new SessioneDao(cf);
-
-            showCorsiScene(chef, corsoDao, sessioneDao);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            showError("Errore durante il login. Riprova.");
-            shake(card);
-        } finally {
-            setBusy(false);
-        }
+        Async.run(
+                () -> chefDao.login(username, password),
+                chef -> {
+                    setBusy(false);
+                    if (chef == null) {
+                        showError("Username o password errati.");
+                        shake(card);
+                        return;
+                    }
+                    String cf = chef.getCF_Chef().trim();
+
+                    CorsoDao.fineSessione();
+                    CorsoDao corsoDao = new CorsoDao(cf);
+                    SessioneDao sessioneDao = new SessioneDao(cf);
+
+                    try {
+                        showCorsiScene(chef, corsoDao, sessioneDao);
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                        showError("Errore durante il login. Riprova.");
+                    }
+                },
+                ex -> {
+                    setBusy(false);
+                    showError(ex instanceof PasswordHasher.PasswordException && ex.getMessage() != null
+                            ? ex.getMessage()
+                            : "Errore durante il login. Riprova.");
+                    shake(card);
+                });
     }
 
     @FXML
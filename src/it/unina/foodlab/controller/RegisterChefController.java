@@ -2,6 +2,8 @@ package it.unina.foodlab.controller;
 
 import it.unina.foodlab.dao.ChefDao;
 import it.unina.foodlab.model.Chef;
+import it.unina.foodlab.util.Async;
+import it.unina.foodlab.util.VerificaDisponibilita;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -27,10 +29,17 @@ public class RegisterChefController {
     @FXML private DatePicker nascitaPicker;
     @FXML private Label errorLabel;
     @FXML private Button registerButton;
+    @FXML private Label cfStatoLabel;
+    @FXML private Label usernameStatoLabel;
 
     private final ChefDao chefDao = new ChefDao();
     private Stage stage;
 
+    private VerificaDisponibilita verificaCf;
+    private VerificaDisponibilita verificaUsername;
+    private VerificaDisponibilita.Esito esitoCf;
+    private VerificaDisponibilita.Esito esitoUsername;
+
     private static final String REGEX_NOME     = "^[A-Za-zÀ-ÖØ-öø-ÿ'`\\-\\s]{2,50}$";
     private static final String REGEX_COGNOME  = REGEX_NOME;
     private static final String REGEX_CF_CHEF  = "^CH\\d{3}$";
@@ -42,6 +51,64 @@ public class RegisterChefController {
         this.stage = stage;
     }
 
+    @FXML
+    private void initialize() {
+        verificaCf = new VerificaDisponibilita(chefDao::existsByCf, esito -> {
+            esitoCf = esito;
+            mostraStato(cfStatoLabel, esito, "Codice");
+        });
+        verificaUsername = new VerificaDisponibilita(chefDao::existsByUsername, esito -> {
+            esitoUsername = esito;
+            mostraStato(usernameStatoLabel, esito, "Username");
+        });
+
+        // si interroga il database solo per valori già nel formato corretto
+        cfField.textProperty().addListener((o, a, b) -> {
+            String cf = b == null ? "" : b.trim();
+            if (cf.matches(REGEX_CF_CHEF)) {
+                verificaCf.richiedi(cf);
+            } else {
+                verificaCf.richiedi(null);
+            }
+        });
+        usernameField.textProperty().addListener((o, a, b) -> {
+            String u = b == null ? "" : b.trim();
+            if (u.matches(REGEX_USERNAME)) {
+                verificaUsername.richiedi(u);
+            } else {
+                verificaUsername.richiedi(null);
+            }
+        });
+    }
+
+    private void mostraStato(Label label, VerificaDisponibilita.Esito esito, String cosa) {
+        if (label == null) {
+            return;
+        }
+        String testo = switch (esito.stato()) {
+            case IN_VERIFICA -> "verifica…";
+            case DISPONIBILE -> "✓ disponibile";
+            case OCCUPATO -> cosa + " già in uso";
+            default -> "";
+        };
+        String colore = switch (esito.stato()) {
+            case DISPONIBILE -> "#9be7b4";
+            case OCCUPATO -> "#ffd0cc";
+            default -> "rgba(255,255,255,0.70)";
+        };
+        label.setText(testo);
+        label.setStyle("-fx-font-size:12px; -fx-text-fill:" + colore + ";");
+        boolean visibile = !testo.isEmpty();
+        label.setVisible(visibile);
+        label.setManaged(visibile);
+    }
+
+    private static boolean occupato(VerificaDisponibilita.Esito esito, String valore) {
+        return esito != null
+                && esito.stato() == VerificaDisponibilita.Stato.OCCUPATO
+                && esito.valore().equals(valore);
+    }
+
     @FXML
     private void showCalendarPopup(MouseEvent e) {
         nascitaPicker.show();
@@ -77,32 +144,52 @@ public class RegisterChefController {
             return;
         }
 
-        setUiDisabled(true);
-        try {
-            ChefDao.RegisterOutcome esito = chefDao.register(chef);
-
-            switch (esito) {
-                case OK -> {
-                    showInfo("Registrazione completata", "Chef registrato correttamente.");
-                }
-                case DUPLICATE_CF -> {
-                    showError("Codice Chef già presente. Scegli un altro codice (es. CH123).");
-                }
-                case DUPLICATE_USERNAME -> {
-                    showError("Username già in uso. Scegline un altro.");
-                }
-                default -> showError("Registrazione non riuscita. Riprovare.");
-            }
-        } catch (Exception ex) {
-        	ex.printStackTrace(); 
-            showError("Errore durante la registrazione. Riprova.");
-        } finally {
-            setUiDisabled(false);
+        // il controllo live ha già trovato un duplicato: inutile tentare l'inserimento
+        if (occupato(esitoCf, chef.getCF_Chef())) {
+            showError("Codice Chef già presente. Scegli un altro codice (es. CH123).");
+            cfField.requestFocus();
+            return;
         }
+        if (occupato(esitoUsername, chef.getUsername())) {
+            showError("Username già in uso. Scegline un altro.");
+            usernameField.requestFocus();
+            return;
+        }
+
+        verificaCf.annulla();
+        verificaUsername.annulla();
+        setUiDisabled(true);
+
+        Async.run(() -> chefDao.register(chef),
+                esito -> {
+                    setUiDisabled(false);
+                    switch (esito) {
+                        case OK -> {
+                            verificaCf.segna(chef.getCF_Chef(), true);
+                            verificaUsername.segna(chef.getUsername(), true);
+                            showInfo("Registrazione completata", "Chef registrato correttamente.");
+                        }
+                        case DUPLICATE_CF -> {
+                            verificaCf.segna(chef.getCF_Chef(), true);
+                            showError("Codice Chef già presente. Scegli un altro codice (es. CH123).");
+                        }
+                        case DUPLICATE_USERNAME -> {
+                            verificaUsername.segna(chef.getUsername(), true);
+                            showError("Username già in uso. Scegline un altro.");
+                        }
+                        default -> showError("Registrazione non riuscita. Riprovare.");
+                    }
+                },
+                ex -> {
+                    setUiDisabled(false);
+                    showError("Errore durante la registrazione. Riprova.");
+                });
     }
 
     @FXML
     private void onCancel() {
+        verificaCf.annulla();
+        verificaUsername.annulla();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/LoginFrame.fxml"));
             Parent root = loader.load();
@@ -1,6 +1,7 @@
 package it.unina.foodlab.controller;
 
 import it.unina.foodlab.dao.ReportDao;
+import it.unina.foodlab.util.Async;
 import it.unina.foodlab.util.ReportMensile;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -15,11 +16,15 @@ import javafx.stage.Stage;
 import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.Locale;
+import java.util.Map;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.fx.ChartViewer;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.renderer.category.BarRenderer;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
 import org.jfree.data.category.DefaultCategoryDataset;
 
 import java.awt.Color;
@@ -88,10 +93,22 @@ public class ReportController {
 	@FXML
 private void onGenera(ActionEvent e) {
     btnCrea.setDisable(true);
-    try {
-        YearMonth ym = getSelectedYearMonth();
-        ReportMensile r = reportDao.getReportMensile(cfChef, ym);
+    YearMonth ym = getSelectedYearMonth();
+    YearMonth gennaio = YearMonth.of(ym.getYear(), 1);
+    Async.run(() -> reportDao.getReportRange(cfChef, gennaio, gennaio.plusYears(1)),
+            anno -> {
+                mostraReport(ym, anno.get(ym));
+                mostraAndamento(ym.getYear(), anno);
+                btnCrea.setDisable(false);
+            },
+            ex -> {
+                showError("Errore durante la generazione del report.");
+                btnCrea.setDisable(false);
+            });
+}
 
+private void mostraReport(YearMonth ym, ReportMensile r) {
+    try {
         lblTitolo.setText("Report Mensile - " + ym.getMonth() + " " + ym.getYear());
 
         gridValori.getChildren().clear();
@@ -137,11 +154,36 @@ private void onGenera(ActionEvent e) {
     } catch (Exception ex) {
         ex.printStackTrace();
         showError("Errore durante la generazione del report.");
-    } finally {
-        btnCrea.setDisable(false);
     }
 }
 
+private void mostraAndamento(int anno, Map<YearMonth, ReportMensile> serie) {
+    DefaultCategoryDataset ds = new DefaultCategoryDataset();
+    for (Map.Entry<YearMonth, ReportMensile> e : serie.entrySet()) {
+        String mese = e.getKey().getMonth().getDisplayName(TextStyle.SHORT, Locale.ITALIAN);
+        ReportMensile r = e.getValue();
+        ds.addValue(r.totaleCorsi(),    "Corsi",    mese);
+        ds.addValue(r.totaleOnline(),   "Online",   mese);
+        ds.addValue(r.totalePratiche(), "Pratiche", mese);
+    }
+
+    JFreeChart chart = ChartFactory.createLineChart(
+            "Andamento " + anno, "Mese", "Numero", ds);
+    styleChart(chart, new Color(66, 133, 244));
+    if (chart.getPlot() instanceof CategoryPlot plot && plot.getRenderer() instanceof LineAndShapeRenderer lr) {
+        lr.setSeriesPaint(0, new Color(66, 133, 244));
+        lr.setSeriesPaint(1, new Color(31, 181, 122));
+        lr.setSeriesPaint(2, new Color(250, 195, 0));
+        lr.setDefaultShapesVisible(true);
+    }
+    chart.getLegend().setBackgroundPaint(new Color(0x20,0x28,0x2b));
+    chart.getLegend().setItemPaint(new Color(0xE9,0xF5,0xEC));
+
+    ChartViewer v = new ChartViewer(chart);
+    v.setPrefSize(520, 320);
+    rightCharts.getChildren().add(wrapChart(v));
+}
+
 	@FXML
 private void onIndietro() {
     try {
@@ -6,6 +6,7 @@ import it.unina.foodlab.model.Ricetta;
 import it.unina.foodlab.model.Sessione;
 import it.unina.foodlab.model.SessioneOnline;
 import it.unina.foodlab.model.SessionePresenza;
+import it.unina.foodlab.util.Async;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -20,6 +21,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class SessioniPreviewController {
 
@@ -38,6 +40,11 @@ public class SessioniPreviewController {
     private final FilteredList<Sessione> filtered = new FilteredList<>(backing, s -> true);
     private SessioneDao sessioneDao;
 
+    // ricette di tutte le sessioni in presenza del corso, precaricate all'apertura
+    private Map<Integer, List<Ricetta>> ricettePerSessione;
+    private boolean precaricamentoFallito = false;
+    private SessionePresenza inAttesa;
+
     @FXML
     public void initialize() {
         if (tvRicette != null) {
@@ -111,6 +118,30 @@ public class SessioniPreviewController {
             backing.addAll(sessioni);
         }
         refilter();
+
+        if (corso != null && sessioneDao != null) {
+            precaricaRicette(corso.getIdCorso());
+        }
+    }
+
+    private void precaricaRicette(long idCorso) {
+        Async.run(() -> sessioneDao.findRicetteByCorso(idCorso),
+                mappa -> {
+                    ricettePerSessione = mappa;
+                    if (inAttesa != null) {
+                        SessionePresenza sp = inAttesa;
+                        inAttesa = null;
+                        loadRicetteFor(sp);
+                    }
+                },
+                ex -> {
+                    precaricamentoFallito = true;
+                    if (inAttesa != null) {
+                        SessionePresenza sp = inAttesa;
+                        inAttesa = null;
+                        loadRicetteFor(sp);
+                    }
+                });
     }
 
     @FXML
@@ -206,25 +237,29 @@ public class SessioniPreviewController {
     }
 
     private void loadRicetteFor(SessionePresenza sp) {
-    if (tvRicette == null) {
-        return;
-    }
+        if (tvRicette == null) {
+            return;
+        }
 
-    List<Ricetta> lista;
-    try {
-        lista = sessioneDao.findRicetteBySessionePresenza(sp.getId());
-    } catch (Exception ex) {
-        showError("Errore caricamento ricette associate: " + ex.getMessage());
-        tvRicette.getItems().clear();
-        return;
-    }
+        if (ricettePerSessione != null) {
+            List<Ricetta> lista = ricettePerSessione.get(sp.getId());
+            tvRicette.getItems().setAll(lista != null ? lista : Collections.emptyList());
+            return;
+        }
 
-    if (lista == null) {
-        lista =Collections.emptyList();
-    }
+        if (!precaricamentoFallito) {
+            inAttesa = sp;
+            tvRicette.getItems().clear();
+            return;
+        }
 
-    tvRicette.getItems().setAll(lista);
-}
+        Async.run(() -> sessioneDao.findRicetteBySessionePresenza(sp.getId()),
+                lista -> tvRicette.getItems().setAll(lista != null ? lista : Collections.emptyList()),
+                ex -> {
+                    showError("Errore caricamento ricette associate: " + ex.getMessage());
+                    tvRicette.getItems().clear();
+                });
+    }
 
 
     private final class CardCell extends ListCell<Sessione> {
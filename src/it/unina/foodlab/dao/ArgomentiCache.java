@@ -0,0 +1,75 @@
+package it.unina.foodlab.dao;
+
+import it.unina.foodlab.util.Notifiche;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class ArgomentiCache {
+
+    private static final Comparator<String> ORDINE =
+            Comparator.comparing((String a) -> a.toLowerCase()).thenComparing(Comparator.naturalOrder());
+
+    private static final TreeMap<String, Integer> CONTEGGI = new TreeMap<>(ORDINE);
+    private static boolean caricata = false;
+    private static long generazione = 0;
+
+    // le scritture di questo client aggiornano già la cache con aggiungi/rimuovi
+    static {
+        Notifiche.aggiungiListener(e -> {
+            if (e.isTutto() || ("corso".equals(e.tabella()) && !e.propria())) {
+                invalida();
+            }
+        });
+    }
+
+    private ArgomentiCache() {}
+
+    static synchronized List<String> get() {
+        return caricata ? new ArrayList<>(CONTEGGI.keySet()) : null;
+    }
+
+    static synchronized long generazione() {
+        return generazione;
+    }
+
+    static synchronized void carica(Map<String, Integer> conteggi, long letturaGen) {
+        if (letturaGen != generazione) {
+            return;
+        }
+        CONTEGGI.clear();
+        CONTEGGI.putAll(conteggi);
+        caricata = true;
+    }
+
+    static synchronized void aggiungi(String argomento) {
+        sposta(argomento, 1);
+    }
+
+    static synchronized void rimuovi(String argomento) {
+        sposta(argomento, -1);
+    }
+
+    static synchronized void invalida() {
+        generazione++;
+        caricata = false;
+        CONTEGGI.clear();
+    }
+
+    private static void sposta(String argomento, int d) {
+        generazione++;
+        if (!caricata || argomento == null || argomento.trim().isEmpty()) {
+            return;
+        }
+        String a = argomento.trim();
+        int n = CONTEGGI.getOrDefault(a, 0) + d;
+        if (n > 0) {
+            CONTEGGI.put(a, n);
+        } else {
+            CONTEGGI.remove(a);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package it.unina.foodlab.dao;
 
 import it.unina.foodlab.model.Chef;
 import it.unina.foodlab.util.Db;
+import it.unina.foodlab.util.PasswordHasher;
+import it.unina.foodlab.util.PasswordHasher.PasswordException;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -23,33 +25,104 @@ public class ChefDao {
         ERROR
     }
 
-    public boolean authenticate(String username, String rawPassword) throws SQLException {
-        if (isBlank(username) || isBlank(rawPassword)) return false;
+    private static final String SQL_LOGIN =
+            "SELECT " + COL_CF + "," + COL_USERNAME + "," + COL_NOME + "," +
+            COL_COGNOME + "," + COL_NASCITA + "," + COL_PASSWORD +
+            " FROM " + TBL_CHEF + " WHERE " + COL_USERNAME + " = ? LIMIT 1";
+
+    // solo se nel frattempo nessun altro ha già aggiornato la stessa riga
+    private static final String SQL_UPDATE_PASSWORD =
+            "UPDATE " + TBL_CHEF + " SET " + COL_PASSWORD + " = ?" +
+            " WHERE " + COL_CF + " = ? AND " + COL_PASSWORD + " = ?";
+
+    private static final String SQL_FIND_BY_USERNAME =
+            "SELECT " + COL_CF + "," + COL_USERNAME + "," + COL_NOME + "," +
+            COL_COGNOME + "," + COL_PASSWORD + "," + COL_NASCITA +
+            " FROM " + TBL_CHEF + " WHERE " + COL_USERNAME + " = ? LIMIT 1";
+
+    private static final String SQL_EXISTS_CF =
+            "SELECT 1 FROM " + TBL_CHEF + " WHERE " + COL_CF + " = ? LIMIT 1";
+
+    private static final String SQL_EXISTS_USERNAME =
+            "SELECT 1 FROM " + TBL_CHEF + " WHERE " + COL_USERNAME + " = ? LIMIT 1";
+
+    // i due EXISTS leggono lo snapshot della statement, quindi non vedono la riga appena inserita
+    private static final String SQL_REGISTER =
+            "WITH ins AS ( " +
+            "  INSERT INTO " + TBL_CHEF +
+            "  (" + COL_CF + "," + COL_USERNAME + "," + COL_NOME + "," +
+            COL_COGNOME + "," + COL_PASSWORD + "," + COL_NASCITA + ") VALUES (?, ?, ?, ?, ?, ?) " +
+            "  ON CONFLICT DO NOTHING " +
+            "  RETURNING " + COL_CF +
+            ") " +
+            "SELECT EXISTS (SELECT 1 FROM ins), " +
+            "       EXISTS (SELECT 1 FROM " + TBL_CHEF + " WHERE " + COL_CF + " = ?), " +
+            "       EXISTS (SELECT 1 FROM " + TBL_CHEF + " WHERE " + COL_USERNAME + " = ?)";
+
+    private static final int REGISTER_TENTATIVI = 3;
+
+    public boolean authenticate(String username, String rawPassword) throws SQLException, PasswordException {
+        return login(username, rawPassword) != null;
+    }
+
+    // verifica le credenziali e carica il profilo nella stessa query; null se non valide
+    public Chef login(String username, String rawPassword) throws SQLException, PasswordException {
+        if (isBlank(username) || isBlank(rawPassword)) return null;
 
-        final String sql = "SELECT 1 FROM " + TBL_CHEF +
-                " WHERE " + COL_USERNAME + " = ? AND " + COL_PASSWORD + " = ? LIMIT 1";
+        Chef chef = null;
+        String memorizzata = null;
 
+        // la connessione torna al pool prima del calcolo dell'hash
         try (Connection cn = Db.get();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
+             PreparedStatement ps = cn.prepareStatement(SQL_LOGIN)) {
 
             ps.setString(1, username.trim());
-            ps.setString(2, rawPassword);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
+                if (rs.next()) {
+                    chef = new Chef();
+                    chef.setCF_Chef(rs.getString(1));
+                    chef.setUsername(rs.getString(2));
+                    chef.setNome(rs.getString(3));
+                    chef.setCognome(rs.getString(4));
+
+                    Date d = rs.getDate(5);
+                    if (d != null) chef.setNascita(d.toLocalDate());
+
+                    memorizzata = rs.getString(6);
+                }
             }
         }
+
+        if (!PasswordHasher.verifica(rawPassword, memorizzata) || chef == null) {
+            return null;
+        }
+
+        if (PasswordHasher.daAggiornare(memorizzata)) {
+            aggiornaPassword(chef.getCF_Chef(), memorizzata, PasswordHasher.hash(rawPassword));
+        }
+        return chef;
+    }
+
+    private void aggiornaPassword(String cf, String vecchia, String nuova) {
+        try (Connection cn = Db.get();
+             PreparedStatement ps = cn.prepareStatement(SQL_UPDATE_PASSWORD)) {
+
+            ps.setString(1, nuova);
+            ps.setString(2, cf);
+            ps.setString(3, vecchia);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            // il login resta valido, si riproverà al prossimo accesso
+            ex.printStackTrace();
+        }
     }
 
     public Chef findByUsername(String username) throws SQLException {
         if (isBlank(username)) return null;
 
-        final String sql = "SELECT " + COL_CF + "," + COL_USERNAME + "," + COL_NOME + "," +
-                COL_COGNOME + "," + COL_PASSWORD + "," + COL_NASCITA +
-                " FROM " + TBL_CHEF + " WHERE " + COL_USERNAME + " = ? LIMIT 1";
-
         try (Connection cn = Db.get();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
+             PreparedStatement ps = cn.prepareStatement(SQL_FIND_BY_USERNAME)) {
 
             ps.setString(1, username.trim());
 
@@ -74,10 +147,8 @@ public class ChefDao {
     public boolean existsByCf(String cf) throws SQLException {
         if (isBlank(cf)) return false;
 
-        final String sql = "SELECT 1 FROM " + TBL_CHEF + " WHERE " + COL_CF + " = ? LIMIT 1";
-
         try (Connection cn = Db.get();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
+             PreparedStatement ps = cn.prepareStatement(SQL_EXISTS_CF)) {
 
             ps.setString(1, cf.trim());
             try (ResultSet rs = ps.executeQuery()) {
@@ -89,10 +160,8 @@ public class ChefDao {
     public boolean existsByUsername(String username) throws SQLException {
         if (isBlank(username)) return false;
 
-        final String sql = "SELECT 1 FROM " + TBL_CHEF + " WHERE " + COL_USERNAME + " = ? LIMIT 1";
-
         try (Connection cn = Db.get();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
+             PreparedStatement ps = cn.prepareStatement(SQL_EXISTS_USERNAME)) {
 
             ps.setString(1, username.trim());
             try (ResultSet rs = ps.executeQuery()) {
@@ -115,21 +184,22 @@ public class ChefDao {
             return RegisterOutcome.ERROR;
         }
 
-        if (existsByCf(cf)) return RegisterOutcome.DUPLICATE_CF;
-        if (existsByUsername(username)) return RegisterOutcome.DUPLICATE_USERNAME;
-
-        final String sql = "INSERT INTO " + TBL_CHEF +
-                " (" + COL_CF + "," + COL_USERNAME + "," + COL_NOME + "," +
-                COL_COGNOME + "," + COL_PASSWORD + "," + COL_NASCITA + ") VALUES (?, ?, ?, ?, ?, ?)";
+        final String hash;
+        try {
+            hash = PasswordHasher.hash(password);
+        } catch (PasswordException ex) {
+            ex.printStackTrace();
+            return RegisterOutcome.ERROR;
+        }
 
         try (Connection cn = Db.get();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
+             PreparedStatement ps = cn.prepareStatement(SQL_REGISTER)) {
 
             ps.setString(1, cf);
             ps.setString(2, username);
             ps.setString(3, nome);
             ps.setString(4, cognome);
-            ps.setString(5, password);
+            ps.setString(5, hash);
 
             if (nascita != null) {
                 ps.setDate(6, Date.valueOf(nascita));
@@ -137,8 +207,20 @@ public class ChefDao {
                 ps.setNull(6, Types.DATE);
             }
 
-            int rows = ps.executeUpdate();
-            return rows == 1 ? RegisterOutcome.OK : RegisterOutcome.ERROR;
+            ps.setString(7, cf);
+            ps.setString(8, username);
+
+            // se il conflitto è con una registrazione concorrente ancora non visibile
+            // allo snapshot, nessun flag risulta: si ripete e la riga ormai è visibile
+            for (int i = 0; i < REGISTER_TENTATIVI; i++) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getBoolean(1)) return RegisterOutcome.OK;
+                    if (rs.getBoolean(2)) return RegisterOutcome.DUPLICATE_CF;
+                    if (rs.getBoolean(3)) return RegisterOutcome.DUPLICATE_USERNAME;
+                }
+            }
+            return RegisterOutcome.ERROR;
 
         } catch (SQLException ex) {
             ex.printStackTrace();
@@ -0,0 +1,56 @@
+package it.unina.foodlab.dao;
+
+import it.unina.foodlab.model.Chef;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Le istanze condivise non vengono mai modificate: se nome o cognome cambiano la voce
+// viene sostituita, così i thread che leggono quelle già consegnate non vedono scritture.
+final class ChefLookup {
+
+    private static final int MAX_CHEF = 1_000;
+
+    private static final ConcurrentMap<String, Chef> CHEFS = new ConcurrentHashMap<>();
+
+    private ChefLookup() {}
+
+    static Chef of(String cf, String nome, String cognome) {
+        if (cf == null) {
+            return null;
+        }
+        if (CHEFS.size() >= MAX_CHEF) {
+            CHEFS.clear();
+        }
+        return CHEFS.compute(cf.trim(), (k, attuale) -> {
+            if (attuale != null
+                    && Objects.equals(attuale.getNome(), nome)
+                    && Objects.equals(attuale.getCognome(), cognome)) {
+                return attuale;
+            }
+            Chef c = new Chef();
+            c.setCF_Chef(k);
+            c.setNome(nome);
+            c.setCognome(cognome);
+            return c;
+        });
+    }
+
+    // quando nome e cognome non sono noti: l'istanza già condivisa, altrimenti una con il solo CF
+    static Chef of(String cf) {
+        if (cf == null) {
+            return null;
+        }
+        Chef chef = CHEFS.get(cf.trim());
+        if (chef == null) {
+            chef = new Chef();
+            chef.setCF_Chef(cf.trim());
+        }
+        return chef;
+    }
+
+    static void svuota() {
+        CHEFS.clear();
+    }
+}
@@ -1,6 +1,5 @@
 package it.unina.foodlab.dao;
 
-import it.unina.foodlab.model.Chef;
 import it.unina.foodlab.model.Corso;
 import it.unina.foodlab.model.Sessione;
 import it.unina.foodlab.model.SessioneOnline;
@@ -12,14 +11,22 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CorsoDao {
 
     private final String ownerCfChef;
     private final boolean restrictFindAllToOwner;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_FETCH_SIZE = 50;
 
     public CorsoDao(String ownerCfChef) {
         if (ownerCfChef == null || ownerCfChef.trim().isEmpty()) {
@@ -29,67 +36,110 @@ public class CorsoDao {
         this.restrictFindAllToOwner = false;
     }
 
-    private String sqlFindAll() {
-        return ""
-                + "SELECT  c.id_corso, c.data_inizio, c.data_fine, c.argomento, c.frequenza, c.\"numSessioni\" AS num_sessioni, "
-                + "        ch.CF_Chef, ch.nome, ch.cognome, ch.username, ch.password "
-                + "FROM corso c "
-                + "LEFT JOIN chef ch ON ch.CF_Chef = c.fk_cf_chef "
-                + (restrictFindAllToOwner ? "WHERE c.fk_cf_chef = ? " : "")
-                + "ORDER BY c.data_inizio DESC";
+    // a ogni accesso si riparte da zero con i dati degli chef condivisi tra i corsi
+    public static void fineSessione() {
+        ChefLookup.svuota();
     }
 
-    private String sqlFindById() {
-        return ""
-                + "SELECT  c.id_corso, c.data_inizio, c.data_fine, c.argomento, c.frequenza, c.\"numSessioni\" AS num_sessioni, "
-                + "        ch.CF_Chef, ch.nome, ch.cognome, ch.username, ch.password "
-                + "FROM corso c "
-                + "LEFT JOIN chef ch ON ch.CF_Chef = c.fk_cf_chef "
-                + "WHERE c.id_corso = ? "
-                + (restrictFindAllToOwner ? "AND c.fk_cf_chef = ? " : "");
-    }
+    private static final String SQL_SELECT_CORSO =
+            "SELECT  c.id_corso, c.data_inizio, c.data_fine, c.argomento, c.frequenza, c.\"numSessioni\" AS num_sessioni, " +
+            "        c.fk_cf_chef, ch.nome, ch.cognome " +
+            "FROM corso c " +
+            "LEFT JOIN chef ch ON ch.CF_Chef = c.fk_cf_chef ";
 
-    private String sqlInsertCorso() {
-        return ""
-                + "INSERT INTO corso "
-                + " (data_inizio, data_fine, argomento, frequenza, \"numSessioni\", fk_cf_chef) "
-                + "VALUES (?, ?, ?, ?, ?, ?) "
-                + "RETURNING id_corso";
-    }
+    private static final String SQL_FIND_ALL =
+            SQL_SELECT_CORSO +
+            "ORDER BY c.data_inizio DESC";
 
-    private String sqlDeleteCorso() {
-        return "DELETE FROM corso WHERE id_corso = ? AND fk_cf_chef = ?";
-    }
+    private static final String SQL_FIND_ALL_OWNER =
+            SQL_SELECT_CORSO +
+            "WHERE c.fk_cf_chef = ? " +
+            "ORDER BY c.data_inizio DESC";
 
-    private String sqlInsertSesOnline() {
-        return ""
-                + "INSERT INTO sessione_online "
-                + " (fk_id_corso, data, ora_inizio, ora_fine, piattaforma) "
-                + "VALUES (?, ?, ?, ?, ?)";
-    }
+    private static final String SQL_PAGE_ORDER =
+            "ORDER BY c.data_inizio DESC, c.id_corso DESC " +
+            "LIMIT ?";
 
-    private String sqlInsertSesPresenza() {
-        return ""
-                + "INSERT INTO sessione_presenza "
-                + " (fk_id_corso, data, ora_inizio, ora_fine, via, num, cap, aula, posti_max) "
-                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-    }
+    private static final String SQL_FIND_PAGE =
+            SQL_SELECT_CORSO +
+            SQL_PAGE_ORDER;
 
-    private String sqlDistinctArg() {
-        return ""
-                + "SELECT a FROM ( "
-                + "  SELECT DISTINCT TRIM(argomento) AS a "
-                + "  FROM corso "
-                + "  WHERE argomento IS NOT NULL AND TRIM(argomento) <> '' "
-                + ") t "
-                + "ORDER BY LOWER(a), a";
-    }
+    private static final String SQL_FIND_PAGE_AFTER =
+            SQL_SELECT_CORSO +
+            "WHERE (c.data_inizio, c.id_corso) < (?, ?) " +
+            SQL_PAGE_ORDER;
+
+    private static final String SQL_FIND_PAGE_OWNER =
+            SQL_SELECT_CORSO +
+            "WHERE c.fk_cf_chef = ? " +
+            SQL_PAGE_ORDER;
+
+    private static final String SQL_FIND_PAGE_AFTER_OWNER =
+            SQL_SELECT_CORSO +
+            "WHERE c.fk_cf_chef = ? AND (c.data_inizio, c.id_corso) < (?, ?) " +
+            SQL_PAGE_ORDER;
+
+    private static final String SQL_VERSIONE =
+            "SELECT txid_snapshot_xmin(txid_current_snapshot())";
+
+    private static final String SQL_CHANGED_SINCE =
+            SQL_SELECT_CORSO +
+            "WHERE c.versione >= ? ";
+
+    private static final String SQL_CHANGED_SINCE_OWNER =
+            SQL_SELECT_CORSO +
+            "WHERE c.versione >= ? AND c.fk_cf_chef = ? ";
+
+    private static final String SQL_DELETED_SINCE =
+            "SELECT id_corso FROM corso_eliminato WHERE versione >= ?";
+
+    private static final String SQL_DELETED_SINCE_OWNER =
+            "SELECT id_corso FROM corso_eliminato WHERE versione >= ? AND cf_chef = ?";
+
+    private static final String SQL_FIND_BY_ID =
+            SQL_SELECT_CORSO +
+            "WHERE c.id_corso = ? ";
+
+    private static final String SQL_FIND_BY_ID_OWNER =
+            SQL_SELECT_CORSO +
+            "WHERE c.id_corso = ? AND c.fk_cf_chef = ? ";
+
+    private static final String SQL_INSERT_CORSO =
+            "INSERT INTO corso " +
+            " (data_inizio, data_fine, argomento, frequenza, \"numSessioni\", fk_cf_chef) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "RETURNING id_corso";
+
+    private static final String SQL_DELETE_CORSO =
+            "DELETE FROM corso WHERE id_corso = ? AND fk_cf_chef = ? " +
+            "RETURNING argomento";
+
+    private static final String SQL_MESI_CORSO =
+            "SELECT mese FROM report_corso_mese WHERE id_corso = ?";
+
+    // blocca anche l'inserimento di nuove sessioni del corso fino alla fine della transazione
+    private static final String SQL_LOCK_CORSO =
+            "SELECT 1 FROM corso WHERE id_corso = ? AND fk_cf_chef = ? FOR UPDATE";
+
+    private static final String SQL_INSERT_SES_ONLINE =
+            "INSERT INTO sessione_online " +
+            " (fk_id_corso, data, ora_inizio, ora_fine, piattaforma) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_INSERT_SES_PRESENZA =
+            "INSERT INTO sessione_presenza " +
+            " (fk_id_corso, data, ora_inizio, ora_fine, via, num, cap, aula, posti_max) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_DISTINCT_ARG =
+            "SELECT nome, num_corsi FROM argomento " +
+            "ORDER BY LOWER(nome), nome";
 
 
     public List<Corso> findAll() throws Exception {
         List<Corso> out = new ArrayList<>();
         try (Connection conn = Db.get();
-             PreparedStatement ps = conn.prepareStatement(sqlFindAll())) {
+             PreparedStatement ps = conn.prepareStatement(restrictFindAllToOwner ? SQL_FIND_ALL_OWNER : SQL_FIND_ALL)) {
 
             if (restrictFindAllToOwner) {
                 ps.setString(1, ownerCfChef);
@@ -104,9 +154,122 @@ public class CorsoDao {
         return out;
     }
 
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = Math.max(0, fetchSize);
+    }
+
+    public List<Corso> findPage(Corso after, int limit) throws Exception {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit deve essere >= 1");
+        }
+        if (after != null && after.getDataInizio() == null) {
+            throw new IllegalArgumentException("Cursore senza data_inizio");
+        }
+
+        String sql;
+        if (after == null) {
+            sql = restrictFindAllToOwner ? SQL_FIND_PAGE_OWNER : SQL_FIND_PAGE;
+        } else {
+            sql = restrictFindAllToOwner ? SQL_FIND_PAGE_AFTER_OWNER : SQL_FIND_PAGE_AFTER;
+        }
+
+        List<Corso> out = new ArrayList<>(Math.min(limit, 1024));
+        try (Connection conn = Db.get()) {
+            // il driver legge a blocchi di fetchSize righe solo dentro una transazione
+            boolean streaming = fetchSize > 0 && fetchSize < limit;
+            if (streaming) {
+                conn.setAutoCommit(false);
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int i = 1;
+                if (restrictFindAllToOwner) {
+                    ps.setString(i++, ownerCfChef);
+                }
+                if (after != null) {
+                    ps.setObject(i++, after.getDataInizio());
+                    ps.setLong(i++, after.getIdCorso());
+                }
+                ps.setInt(i, limit);
+                if (streaming) {
+                    ps.setFetchSize(fetchSize);
+                }
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(mapRow(rs));
+                    }
+                }
+            }
+
+            if (streaming) {
+                conn.commit();
+            }
+        }
+        return out;
+    }
+
+    public record Delta(List<Corso> modificati, List<Long> eliminati, long versione) {}
+
+    public long versioneCorrente() throws Exception {
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_VERSIONE);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    public Delta findChangedSince(long versione) throws Exception {
+        List<Corso> modificati = new ArrayList<>();
+        List<Long> eliminati = new ArrayList<>();
+        long nuovaVersione;
+
+        try (Connection conn = Db.get()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(SQL_VERSIONE);
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                nuovaVersione = rs.getLong(1);
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(restrictFindAllToOwner ? SQL_CHANGED_SINCE_OWNER : SQL_CHANGED_SINCE)) {
+                ps.setLong(1, versione);
+                if (restrictFindAllToOwner) {
+                    ps.setString(2, ownerCfChef);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        modificati.add(mapRow(rs));
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(restrictFindAllToOwner ? SQL_DELETED_SINCE_OWNER : SQL_DELETED_SINCE)) {
+                ps.setLong(1, versione);
+                if (restrictFindAllToOwner) {
+                    ps.setString(2, ownerCfChef);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        eliminati.add(rs.getLong(1));
+                    }
+                }
+            }
+
+            conn.commit();
+        }
+
+        return new Delta(modificati, eliminati, nuovaVersione);
+    }
+
     public Corso findById(long id) throws Exception {
         try (Connection conn = Db.get();
-             PreparedStatement ps = conn.prepareStatement(sqlFindById())) {
+             PreparedStatement ps = conn.prepareStatement(restrictFindAllToOwner ? SQL_FIND_BY_ID_OWNER : SQL_FIND_BY_ID)) {
 
             ps.setLong(1, id);
             if (restrictFindAllToOwner) {
@@ -123,15 +286,54 @@ public class CorsoDao {
     }
 
     public void delete(long id) throws Exception {
-        try (Connection conn = Db.get();
-             PreparedStatement ps = conn.prepareStatement(sqlDeleteCorso())) {
+        try (Connection conn = Db.get()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_LOCK_CORSO)) {
+                    ps.setLong(1, id);
+                    ps.setString(2, ownerCfChef);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new SQLException("Delete negato o nessuna riga (id=" + id + ")");
+                        }
+                    }
+                }
 
-            ps.setLong(1, id);
-            ps.setString(2, ownerCfChef);
+                List<YearMonth> mesi = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement(SQL_MESI_CORSO)) {
+                    ps.setLong(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            mesi.add(YearMonth.from(rs.getObject(1, LocalDate.class)));
+                        }
+                    }
+                }
+
+                String argomento;
+                try (PreparedStatement ps = conn.prepareStatement(SQL_DELETE_CORSO)) {
+                    ps.setLong(1, id);
+                    ps.setString(2, ownerCfChef);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new SQLException("Delete negato o nessuna riga (id=" + id + ")");
+                        }
+                        argomento = rs.getString(1);
+                    }
+                }
 
-            int n = ps.executeUpdate();
-            if (n != 1) {
-                throw new SQLException("Delete negato o nessuna riga (id=" + id + ")");
+                conn.commit();
+                ArgomentiCache.rimuovi(argomento);
+                ReportCache.invalida(ownerCfChef, mesi);
+            } catch (Exception ex) {
+                try {
+                    conn.rollback();
+                } catch (Exception ignore) {}
+                throw ex;
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (Exception ignore) {}
             }
         }
     }
@@ -148,10 +350,10 @@ public class CorsoDao {
             conn.setAutoCommit(false);
             try {
                 long idCorso = insertCorso(conn, c);
-                for (Sessione s : sessions) {
-                    insertSession(conn, idCorso, s);
-                }
+                insertSessions(conn, idCorso, sessions);
                 conn.commit();
+                ReportCache.invalidaSessioni(ownerCfChef, sessions);
+                ArgomentiCache.aggiungi(c.getArgomento());
                 return idCorso;
             } catch (Exception ex) {
                 try {
@@ -167,7 +369,7 @@ public class CorsoDao {
     }
 
     private long insertCorso(Connection conn, Corso c) throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement(sqlInsertCorso())) {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_CORSO)) {
             bindWithoutOwner(ps, c);
             ps.setString(6, ownerCfChef);
 
@@ -176,7 +378,7 @@ public class CorsoDao {
                 long id = rs.getLong(1);
                 c.setIdCorso(id);
 
-                c.getChef().setCF_Chef(ownerCfChef);
+                c.setChef(ChefLookup.of(ownerCfChef));
 
                 return id;
             }
@@ -184,47 +386,73 @@ public class CorsoDao {
     }
 
 
-    private void insertSession(Connection conn, long corsoId, Sessione s) throws SQLException {
-        if (s instanceof SessioneOnline) {
-            SessioneOnline so = (SessioneOnline) s;
-            try (PreparedStatement ps = conn.prepareStatement(sqlInsertSesOnline())) {
-                ps.setLong(1, corsoId);
-                ps.setObject(2, so.getData());
-                ps.setObject(3, so.getOraInizio());
-                ps.setObject(4, so.getOraFine());
-                ps.setString(5, so.getPiattaforma());
-                ps.executeUpdate();
+    private void insertSessions(Connection conn, long corsoId, List<Sessione> sessions) throws SQLException {
+        List<SessioneOnline> online = new ArrayList<>();
+        List<SessionePresenza> presenze = new ArrayList<>();
+        for (Sessione s : sessions) {
+            if (s instanceof SessioneOnline so) {
+                online.add(so);
+            } else if (s instanceof SessionePresenza sp) {
+                presenze.add(sp);
+            } else {
+                throw new SQLException("Tipo sessione non supportato: " + (s == null ? "null" : s.getClass()));
             }
-        } else if (s instanceof SessionePresenza) {
-            SessionePresenza sp = (SessionePresenza) s;
-            try (PreparedStatement ps = conn.prepareStatement(sqlInsertSesPresenza())) {
-                ps.setLong(1, corsoId);
-                ps.setObject(2, sp.getData());
-                ps.setObject(3, sp.getOraInizio());
-                ps.setObject(4, sp.getOraFine());
-                ps.setString(5, sp.getVia());
-                ps.setString(6, sp.getNum());
-                ps.setInt(7, sp.getCap());
-                ps.setString(8, sp.getAula());
-                ps.setInt(9, sp.getPostiMax());
-                ps.executeUpdate();
+        }
+
+        if (!online.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_SES_ONLINE, new String[]{"idsessioneonline"})) {
+                for (SessioneOnline so : online) {
+                    SessioneDao.bindCommon(ps, corsoId, so);
+                    SessioneDao.bindOnline(ps, so);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                assignGeneratedIds(ps, online);
+            }
+        }
+
+        if (!presenze.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_SES_PRESENZA, new String[]{"idSessionePresenza"})) {
+                for (SessionePresenza sp : presenze) {
+                    SessioneDao.bindCommon(ps, corsoId, sp);
+                    SessioneDao.bindPresenza(ps, sp);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                assignGeneratedIds(ps, presenze);
+            }
+        }
+    }
+
+    private void assignGeneratedIds(PreparedStatement ps, List<? extends Sessione> sessions) throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            for (Sessione s : sessions) {
+                if (!keys.next()) {
+                    throw new SQLException("Chiavi generate mancanti per le sessioni inserite");
+                }
+                s.setId(keys.getInt(1));
             }
-        } else {
-            throw new SQLException("Tipo sessione non supportato: " + s.getClass());
         }
     }
 
     public List<String> findDistinctArgomenti() throws Exception {
-        List<String> out = new ArrayList<>();
+        List<String> cached = ArgomentiCache.get();
+        if (cached != null) {
+            return cached;
+        }
+
+        long gen = ArgomentiCache.generazione();
+        Map<String, Integer> conteggi = new LinkedHashMap<>();
         try (Connection conn = Db.get();
-             PreparedStatement ps = conn.prepareStatement(sqlDistinctArg());
+             PreparedStatement ps = conn.prepareStatement(SQL_DISTINCT_ARG);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                out.add(rs.getString(1));
+                conteggi.put(rs.getString(1), rs.getInt(2));
             }
         }
-        return out;
+        ArgomentiCache.carica(conteggi, gen);
+        return new ArrayList<>(conteggi.keySet());
     }
 
     private Corso mapRow(ResultSet rs) throws SQLException {
@@ -245,13 +473,7 @@ public class CorsoDao {
         }
         c.setNumSessioni(ns);
 
-        Chef chef = new Chef();
-        chef.setCF_Chef(rs.getString("CF_Chef"));
-        chef.setNome(rs.getString("nome"));
-        chef.setCognome(rs.getString("cognome"));
-        chef.setUsername(rs.getString("username"));
-        chef.setPassword(rs.getString("password"));
-        c.setChef(chef);
+        c.setChef(ChefLookup.of(rs.getString("fk_cf_chef"), rs.getString("nome"), rs.getString("cognome")));
 
         return c;
     }
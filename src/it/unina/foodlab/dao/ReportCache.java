@@ -0,0 +1,99 @@
+package it.unina.foodlab.dao;
+
+import it.unina.foodlab.model.Sessione;
+import it.unina.foodlab.util.Notifiche;
+import it.unina.foodlab.util.ReportMensile;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+final class ReportCache {
+
+    private static final int MAX_ENTRIES = 240;
+
+    private record Chiave(String cfChef, YearMonth mese) {}
+
+    private static final Map<Chiave, ReportMensile> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Chiave, ReportMensile> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // incrementata a ogni invalidazione: un risultato letto prima non va messo in cache
+    private static long generazione = 0;
+
+    static {
+        Notifiche.aggiungiListener(ReportCache::onEvento);
+    }
+
+    private ReportCache() {}
+
+    private static void onEvento(Notifiche.Evento e) {
+        if (e.isTutto()) {
+            svuota();
+            return;
+        }
+        // senza chef la riga e' stata cancellata in cascata: basta la notifica sul padre
+        if (e.cfChef() == null || "ricetta".equals(e.tabella())) {
+            return;
+        }
+        if (e.mese() != null) {
+            invalida(e.cfChef(), Set.of(e.mese()));
+        } else if ("corso".equals(e.tabella()) && !"insert".equals(e.op())) {
+            invalidaChef(e.cfChef());
+        }
+    }
+
+    static synchronized long generazione() {
+        return generazione;
+    }
+
+    static synchronized ReportMensile get(String cfChef, YearMonth mese) {
+        return CACHE.get(new Chiave(cfChef, mese));
+    }
+
+    static synchronized void put(String cfChef, YearMonth mese, ReportMensile report, long letturaGen) {
+        if (letturaGen == generazione) {
+            CACHE.put(new Chiave(cfChef, mese), report);
+        }
+    }
+
+    static synchronized void invalida(String cfChef, Collection<YearMonth> mesi) {
+        generazione++;
+        for (YearMonth m : mesi) {
+            CACHE.remove(new Chiave(cfChef, m));
+        }
+    }
+
+    static void invalida(String cfChef, LocalDate data) {
+        if (data != null) {
+            invalida(cfChef, Set.of(YearMonth.from(data)));
+        }
+    }
+
+    static void invalidaSessioni(String cfChef, Collection<? extends Sessione> sessioni) {
+        Set<YearMonth> mesi = new HashSet<>();
+        for (Sessione s : sessioni) {
+            if (s != null && s.getData() != null) {
+                mesi.add(YearMonth.from(s.getData()));
+            }
+        }
+        invalida(cfChef, mesi);
+    }
+
+    static synchronized void svuota() {
+        generazione++;
+        CACHE.clear();
+    }
+
+    static synchronized void invalidaChef(String cfChef) {
+        generazione++;
+        CACHE.keySet().removeIf(k -> k.cfChef().equals(cfChef));
+    }
+}
@@ -4,41 +4,52 @@ import it.unina.foodlab.util.Db;
 import it.unina.foodlab.util.ReportMensile;
 import java.math.BigDecimal;
 import java.sql.*;
-import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ReportDao {
 
     private static final String SQL_REPORT_MENSILE =
-            "WITH sess AS ( " +
-            "    SELECT so.idsessioneonline AS id_sessione, so.fk_id_corso, 'ONLINE'::text AS tipo " +
-            "    FROM sessione_online so " +
-            "    WHERE so.data >= ? AND so.data < ? " +
-            "    UNION ALL " +
-            "    SELECT sp.\"idSessionePresenza\" AS id_sessione, sp.fk_id_corso, 'PRATICA'::text AS tipo " +
-            "    FROM sessione_presenza sp " +
-            "    WHERE sp.data >= ? AND sp.data < ? " +
+            "WITH cm AS ( " +
+            "    SELECT COUNT(*)::int                        AS totale_corsi, " +
+            "           COALESCE(SUM(num_online), 0)::int    AS totale_online, " +
+            "           COALESCE(SUM(num_pratiche), 0)::int  AS totale_pratiche " +
+            "    FROM report_corso_mese " +
+            "    WHERE cf_chef = ? AND mese = ? " +
             "), " +
-            "ric AS ( " +
-            "    SELECT spr.fk_id_sess_pr AS id_sessione, COUNT(*)::int AS num_ricette " +
-            "    FROM sessione_presenza_ricetta spr " +
-            "    GROUP BY spr.fk_id_sess_pr " +
+            "rm AS ( " +
+            "    SELECT SUM(num_ricette::numeric * num_sessioni) / NULLIF(SUM(num_sessioni), 0) AS media_ricette, " +
+            "           MAX(num_ricette)                                                        AS max_ricette, " +
+            "           MIN(num_ricette)                                                        AS min_ricette " +
+            "    FROM report_ricette_mese " +
+            "    WHERE cf_chef = ? AND mese = ? " +
+            ") " +
+            "SELECT cm.*, rm.* FROM cm CROSS JOIN rm";
+
+    private static final String SQL_REPORT_RANGE =
+            "WITH cm AS ( " +
+            "    SELECT mese, " +
+            "           COUNT(*)::int          AS totale_corsi, " +
+            "           SUM(num_online)::int   AS totale_online, " +
+            "           SUM(num_pratiche)::int AS totale_pratiche " +
+            "    FROM report_corso_mese " +
+            "    WHERE cf_chef = ? AND mese >= ? AND mese < ? " +
+            "    GROUP BY mese " +
             "), " +
-            "joined AS ( " +
-            "    SELECT s.*, c.id_corso " +
-            "    FROM sess s " +
-            "    JOIN corso c ON c.id_corso = s.fk_id_corso " +
-            "    WHERE c.fk_cf_chef = ? " +
+            "rm AS ( " +
+            "    SELECT mese, " +
+            "           SUM(num_ricette::numeric * num_sessioni) / NULLIF(SUM(num_sessioni), 0) AS media_ricette, " +
+            "           MAX(num_ricette)                                                        AS max_ricette, " +
+            "           MIN(num_ricette)                                                        AS min_ricette " +
+            "    FROM report_ricette_mese " +
+            "    WHERE cf_chef = ? AND mese >= ? AND mese < ? " +
+            "    GROUP BY mese " +
             ") " +
-            "SELECT " +
-            "    COUNT(DISTINCT j.id_corso)                                         AS totale_corsi, " +
-            "    COUNT(*) FILTER (WHERE j.tipo = 'ONLINE')                           AS totale_online, " +
-            "    COUNT(*) FILTER (WHERE j.tipo = 'PRATICA')                          AS totale_pratiche, " +
-            "    AVG(COALESCE(r.num_ricette, 0)) FILTER (WHERE j.tipo = 'PRATICA')   AS media_ricette, " +
-            "    MAX(COALESCE(r.num_ricette, 0)) FILTER (WHERE j.tipo = 'PRATICA')   AS max_ricette, " +
-            "    MIN(COALESCE(r.num_ricette, 0)) FILTER (WHERE j.tipo = 'PRATICA')   AS min_ricette " +
-            "FROM joined j " +
-            "LEFT JOIN ric r ON r.id_sessione = j.id_sessione";
+            "SELECT cm.mese, cm.totale_corsi, cm.totale_online, cm.totale_pratiche, " +
+            "       rm.media_ricette, rm.max_ricette, rm.min_ricette " +
+            "FROM cm LEFT JOIN rm ON rm.mese = cm.mese " +
+            "ORDER BY cm.mese";
 
     public ReportMensile getReportMensile(String cfChef, YearMonth month) throws SQLException {
         if (cfChef == null || cfChef.isBlank()) {
@@ -48,40 +59,109 @@ public class ReportDao {
             throw new IllegalArgumentException("mese mancante");
         }
 
-        LocalDate from = month.atDay(1);
-        LocalDate to = month.plusMonths(1).atDay(1);
+        String cf = cfChef.trim();
+        ReportMensile cached = ReportCache.get(cf, month);
+        if (cached != null) {
+            return cached;
+        }
+
+        long gen = ReportCache.generazione();
+        ReportMensile report = new ReportMensile(0, 0, 0, null, null, null);
+        Date mese = Date.valueOf(month.atDay(1));
 
         try (Connection conn = Db.get();
              PreparedStatement ps = conn.prepareStatement(SQL_REPORT_MENSILE)) {
 
-            ps.setDate(1, Date.valueOf(from));
-            ps.setDate(2, Date.valueOf(to));
-
-            ps.setDate(3, Date.valueOf(from));
-            ps.setDate(4, Date.valueOf(to));
+            ps.setString(1, cf);
+            ps.setDate(2, mese);
 
-            ps.setString(5, cfChef.trim());
+            ps.setString(3, cf);
+            ps.setDate(4, mese);
 
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    int totaleCorsi    = rs.getInt("totale_corsi");
-                    int totaleOnline   = rs.getInt("totale_online");
-                    int totalePratiche = rs.getInt("totale_pratiche");
+                    report = mapRow(rs);
+                }
+            }
+        }
 
-                    BigDecimal mediaBD = rs.getBigDecimal("media_ricette");
-                    Double media = (mediaBD != null) ? mediaBD.doubleValue() : null;
+        ReportCache.put(cf, month, report, gen);
+        return report;
+    }
 
-                    int maxInt = rs.getInt("max_ricette");
-                    Integer max = rs.wasNull() ? null : maxInt;
+    public Map<YearMonth, ReportMensile> getReportRange(String cfChef, YearMonth from, YearMonth toExclusive) throws SQLException {
+        if (cfChef == null || cfChef.isBlank()) {
+            throw new IllegalArgumentException("cfChef mancante o vuoto");
+        }
+        if (from == null || toExclusive == null) {
+            throw new IllegalArgumentException("intervallo di mesi mancante");
+        }
+        if (!from.isBefore(toExclusive)) {
+            throw new IllegalArgumentException("intervallo di mesi vuoto");
+        }
 
-                    int minInt = rs.getInt("min_ricette");
-                    Integer min = rs.wasNull() ? null : minInt;
+        String cf = cfChef.trim();
+        Map<YearMonth, ReportMensile> out = new LinkedHashMap<>();
+        boolean tuttiInCache = true;
+        for (YearMonth m = from; m.isBefore(toExclusive); m = m.plusMonths(1)) {
+            ReportMensile cached = ReportCache.get(cf, m);
+            if (cached == null) {
+                tuttiInCache = false;
+                cached = new ReportMensile(0, 0, 0, null, null, null);
+            }
+            out.put(m, cached);
+        }
+        if (tuttiInCache) {
+            return out;
+        }
 
-                    return new ReportMensile(totaleCorsi, totaleOnline, totalePratiche, min, max, media);
+        for (Map.Entry<YearMonth, ReportMensile> e : out.entrySet()) {
+            e.setValue(new ReportMensile(0, 0, 0, null, null, null));
+        }
+        long gen = ReportCache.generazione();
+
+        Date da = Date.valueOf(from.atDay(1));
+        Date a = Date.valueOf(toExclusive.atDay(1));
+
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_REPORT_RANGE)) {
+
+            ps.setString(1, cf);
+            ps.setDate(2, da);
+            ps.setDate(3, a);
+
+            ps.setString(4, cf);
+            ps.setDate(5, da);
+            ps.setDate(6, a);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.put(YearMonth.from(rs.getDate("mese").toLocalDate()), mapRow(rs));
                 }
             }
         }
 
-        return new ReportMensile(0, 0, 0, null, null, null);
+        for (Map.Entry<YearMonth, ReportMensile> e : out.entrySet()) {
+            ReportCache.put(cf, e.getKey(), e.getValue(), gen);
+        }
+
+        return out;
+    }
+
+    private ReportMensile mapRow(ResultSet rs) throws SQLException {
+        int totaleCorsi    = rs.getInt("totale_corsi");
+        int totaleOnline   = rs.getInt("totale_online");
+        int totalePratiche = rs.getInt("totale_pratiche");
+
+        BigDecimal mediaBD = rs.getBigDecimal("media_ricette");
+        Double media = (mediaBD != null) ? mediaBD.doubleValue() : null;
+
+        int maxInt = rs.getInt("max_ricette");
+        Integer max = rs.wasNull() ? null : maxInt;
+
+        int minInt = rs.getInt("min_ricette");
+        Integer min = rs.wasNull() ? null : minInt;
+
+        return new ReportMensile(totaleCorsi, totaleOnline, totalePratiche, min, max, media);
     }
 }
@@ -0,0 +1,128 @@
+package it.unina.foodlab.dao;
+
+import it.unina.foodlab.model.Ricetta;
+import it.unina.foodlab.util.Notifiche;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+final class RicettaCache {
+
+    // oltre questa soglia il catalogo non viene tenuto in memoria e si interroga il database
+    static final int MAX_RICETTE = 10_000;
+
+    // anche senza notifiche il catalogo viene riallineato ogni tanto
+    private static final long SYNC_MAX_MS = 5 * 60_000L;
+
+    // lo stesso ordine di "ORDER BY LOWER(nome) COLLATE \"C\", id_ricetta" in RicettaDao
+    static final Comparator<Ricetta> ORDINE =
+            Comparator.comparing((Ricetta r) -> r.getNome() == null ? "" : r.getNome().toLowerCase(Locale.ROOT),
+                            RicettaCache::confrontaCodePoint)
+                    .thenComparingLong(Ricetta::getIdRicetta);
+
+    private static final Map<Long, Ricetta> PER_ID = new HashMap<>();
+    private static List<Ricetta> ordinate;
+    private static boolean caricata = false;
+    private static boolean sporca = false;
+    private static long versione = 0;
+    private static long generazione = 0;
+    private static long ultimaSync = 0;
+
+    static {
+        Notifiche.aggiungiListener(e -> {
+            if (e.isTutto() || "ricetta".equals(e.tabella())) {
+                segnalaModifica();
+            }
+        });
+    }
+
+    private RicettaCache() {}
+
+    // String.compareTo confronta unità UTF-16, che ordinano diversamente i caratteri fuori dal BMP
+    private static int confrontaCodePoint(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    static synchronized boolean daSincronizzare() {
+        return !caricata || sporca || System.currentTimeMillis() - ultimaSync > SYNC_MAX_MS;
+    }
+
+    static synchronized Long versione() {
+        return caricata ? versione : null;
+    }
+
+    static synchronized long generazione() {
+        return generazione;
+    }
+
+    static synchronized List<Ricetta> ordinate() {
+        if (!caricata) {
+            return null;
+        }
+        if (ordinate == null) {
+            List<Ricetta> l = new ArrayList<>(PER_ID.values());
+            l.sort(ORDINE);
+            ordinate = Collections.unmodifiableList(l);
+        }
+        return ordinate;
+    }
+
+    static synchronized void applica(RicettaDao.Delta d, boolean completa, long letturaGen) {
+        if (completa) {
+            PER_ID.clear();
+        } else if (!caricata) {
+            return;
+        }
+
+        for (Ricetta r : d.modificati()) {
+            PER_ID.put(r.getIdRicetta(), r);
+        }
+        for (Long id : d.eliminati()) {
+            PER_ID.remove(id);
+        }
+
+        ordinate = null;
+        versione = d.versione();
+        caricata = true;
+        ultimaSync = System.currentTimeMillis();
+        if (letturaGen == generazione) {
+            sporca = false;
+        }
+
+        if (PER_ID.size() > MAX_RICETTE) {
+            troppoGrande();
+        }
+    }
+
+    static synchronized void troppoGrande() {
+        PER_ID.clear();
+        ordinate = null;
+        caricata = false;
+        ultimaSync = System.currentTimeMillis();
+    }
+
+    static synchronized boolean isTroppoGrande() {
+        return !caricata && ultimaSync != 0 && System.currentTimeMillis() - ultimaSync <= SYNC_MAX_MS;
+    }
+
+    static synchronized void segnalaModifica() {
+        generazione++;
+        sporca = true;
+    }
+}
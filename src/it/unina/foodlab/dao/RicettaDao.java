@@ -6,16 +6,64 @@ import it.unina.foodlab.util.Db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
 
 public class RicettaDao {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
     private static final String SQL_FIND_ALL =
             "SELECT id_ricetta, nome, descrizione, difficolta, tempo_preparazione " +
-            "FROM ricetta ORDER BY LOWER(nome)";
+            "FROM ricetta ORDER BY LOWER(nome) COLLATE \"C\", id_ricetta";
+
+    private static final String SQL_DIFFICOLTA =
+            "SELECT DISTINCT difficolta FROM ricetta WHERE difficolta IS NOT NULL ORDER BY difficolta";
+
+    private static final String SQL_VERSIONE =
+            "SELECT txid_snapshot_xmin(txid_current_snapshot())";
+
+    private static final String SQL_COUNT_CHANGED_SINCE =
+            "SELECT COUNT(*) FROM ricetta WHERE versione >= ?";
+
+    private static final String SQL_CHANGED_SINCE =
+            "SELECT id_ricetta, nome, descrizione, difficolta, tempo_preparazione " +
+            "FROM ricetta WHERE versione >= ?";
+
+    private static final String SQL_DELETED_SINCE =
+            "SELECT id_ricetta FROM ricetta_eliminata WHERE versione >= ?";
+
+    private static final String SQL_SEARCH_IDS_BASE =
+            "SELECT id_ricetta FROM ricetta WHERE TRUE";
+
+    private static final String SQL_SEARCH_BASE =
+            "SELECT id_ricetta, nome, descrizione, difficolta, tempo_preparazione " +
+            "FROM ricetta WHERE TRUE";
+
+    // stessa espressione dell'indice idx_ricetta_testo_trgm
+    private static final String SQL_FILTRO_TESTO =
+            " AND (lower(nome) || ' ' || lower(coalesce(descrizione, ''))) LIKE ?";
+
+    private static final String SQL_FILTRO_DIFFICOLTA =
+            " AND difficolta = ?";
+
+    private static final String SQL_FILTRO_TEMPO =
+            " AND tempo_preparazione <= ?";
+
+    // COLLATE "C" confronta per code point come RicettaCache.ORDINE, qualunque sia la collation del database
+    private static final String SQL_SEARCH_ORDINE =
+            " ORDER BY LOWER(nome) COLLATE \"C\", id_ricetta LIMIT ? OFFSET ?";
 
     public RicettaDao() {}
 
+    public record Delta(List<Ricetta> modificati, List<Long> eliminati, long versione) {}
+
     public List<Ricetta> findAll() throws Exception {
+        List<Ricetta> catalogo = catalogo();
+        if (catalogo != null) {
+            return new ArrayList<>(catalogo);
+        }
+
         List<Ricetta> out = new ArrayList<>();
 
         try (Connection conn = Db.get();
@@ -30,13 +78,234 @@ public class RicettaDao {
         return out;
     }
 
+    public List<Ricetta> search(String testo, String difficolta, Integer tempoMax, int limit, int offset) throws Exception {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit deve essere >= 1");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset deve essere >= 0");
+        }
+
+        String t = testo == null ? "" : testo.trim().toLowerCase(Locale.ROOT);
+        String d = difficolta == null ? "" : difficolta.trim();
+
+        List<Ricetta> catalogo = catalogo();
+        if (catalogo != null) {
+            return filtra(catalogo, t, d, tempoMax, limit, offset);
+        }
+
+        StringBuilder sql = new StringBuilder(SQL_SEARCH_BASE);
+        if (!t.isEmpty()) sql.append(SQL_FILTRO_TESTO);
+        if (!d.isEmpty()) sql.append(SQL_FILTRO_DIFFICOLTA);
+        if (tempoMax != null) sql.append(SQL_FILTRO_TEMPO);
+        sql.append(SQL_SEARCH_ORDINE);
+
+        List<Ricetta> out = new ArrayList<>();
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            int i = 1;
+            if (!t.isEmpty()) ps.setString(i++, "%" + escapeLike(t) + "%");
+            if (!d.isEmpty()) ps.setString(i++, d);
+            if (tempoMax != null) ps.setInt(i++, tempoMax);
+            ps.setInt(i++, limit);
+            ps.setInt(i, offset);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapRow(rs));
+                }
+            }
+        }
+
+        return out;
+    }
+
+    // i valori presenti nei dati, per il filtro: il database non ne vincola il dominio
+    public List<String> findDifficolta() throws Exception {
+        List<Ricetta> catalogo = catalogo();
+        if (catalogo != null) {
+            TreeSet<String> valori = new TreeSet<>();
+            for (Ricetta r : catalogo) {
+                if (r.getDifficolta() != null) {
+                    valori.add(r.getDifficolta());
+                }
+            }
+            return new ArrayList<>(valori);
+        }
+
+        List<String> out = new ArrayList<>();
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_DIFFICOLTA);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                out.add(rs.getString(1));
+            }
+        }
+        return out;
+    }
+
+    // tutti gli id che soddisfano i filtri, per selezionare anche le pagine non ancora caricate
+    public List<Long> searchIds(String testo, String difficolta, Integer tempoMax) throws Exception {
+        String t = testo == null ? "" : testo.trim().toLowerCase(Locale.ROOT);
+        String d = difficolta == null ? "" : difficolta.trim();
+
+        List<Long> out = new ArrayList<>();
+
+        List<Ricetta> catalogo = catalogo();
+        if (catalogo != null) {
+            for (Ricetta r : filtra(catalogo, t, d, tempoMax, Integer.MAX_VALUE, 0)) {
+                out.add(r.getIdRicetta());
+            }
+            return out;
+        }
+
+        StringBuilder sql = new StringBuilder(SQL_SEARCH_IDS_BASE);
+        if (!t.isEmpty()) sql.append(SQL_FILTRO_TESTO);
+        if (!d.isEmpty()) sql.append(SQL_FILTRO_DIFFICOLTA);
+        if (tempoMax != null) sql.append(SQL_FILTRO_TEMPO);
+
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            int i = 1;
+            if (!t.isEmpty()) ps.setString(i++, "%" + escapeLike(t) + "%");
+            if (!d.isEmpty()) ps.setString(i++, d);
+            if (tempoMax != null) ps.setInt(i, tempoMax);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(rs.getLong(1));
+                }
+            }
+        }
+
+        return out;
+    }
+
+    public Delta findChangedSince(long versione) throws Exception {
+        return leggiDelta(versione, false, Integer.MAX_VALUE);
+    }
+
+    private List<Ricetta> catalogo() throws Exception {
+        if (RicettaCache.isTroppoGrande()) {
+            return null;
+        }
+        if (RicettaCache.daSincronizzare()) {
+            long gen = RicettaCache.generazione();
+            Long da = RicettaCache.versione();
+            Delta d = da == null
+                    ? leggiDelta(0, true, RicettaCache.MAX_RICETTE)
+                    : leggiDelta(da, false, RicettaCache.MAX_RICETTE);
+            if (d == null) {
+                RicettaCache.troppoGrande();
+            } else {
+                RicettaCache.applica(d, da == null, gen);
+            }
+        }
+        return RicettaCache.ordinate();
+    }
+
+    private Delta leggiDelta(long versione, boolean completa, int max) throws Exception {
+        List<Ricetta> modificati = new ArrayList<>();
+        List<Long> eliminati = new ArrayList<>();
+        long nuovaVersione;
+
+        try (Connection conn = Db.get()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(SQL_VERSIONE);
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                nuovaVersione = rs.getLong(1);
+            }
+
+            if (max < Integer.MAX_VALUE) {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_COUNT_CHANGED_SINCE)) {
+                    ps.setLong(1, versione);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        if (rs.getLong(1) > max) {
+                            conn.commit();
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CHANGED_SINCE)) {
+                ps.setLong(1, versione);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        modificati.add(mapRow(rs));
+                    }
+                }
+            }
+
+            // su un caricamento completo le tombstone non servono
+            if (!completa) {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_DELETED_SINCE)) {
+                    ps.setLong(1, versione);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            eliminati.add(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+
+            conn.commit();
+        }
+
+        return new Delta(modificati, eliminati, nuovaVersione);
+    }
+
+    private static List<Ricetta> filtra(List<Ricetta> catalogo, String testo, String difficolta,
+                                        Integer tempoMax, int limit, int offset) {
+        List<Ricetta> out = new ArrayList<>(Math.min(limit, catalogo.size()));
+        int saltate = 0;
+        for (Ricetta r : catalogo) {
+            if (!testo.isEmpty()) {
+                String nome = r.getNome() == null ? "" : r.getNome().toLowerCase(Locale.ROOT);
+                String desc = r.getDescrizione() == null ? "" : r.getDescrizione().toLowerCase(Locale.ROOT);
+                if (!(nome + " " + desc).contains(testo)) {
+                    continue;
+                }
+            }
+            if (!difficolta.isEmpty() && !difficolta.equals(r.getDifficolta())) {
+                continue;
+            }
+            // come in SQL, un tempo NULL non soddisfa "tempo_preparazione <= ?"
+            if (tempoMax != null && (r.getTempoPreparazione() == null || r.getTempoPreparazione() > tempoMax)) {
+                continue;
+            }
+            if (saltate++ < offset) {
+                continue;
+            }
+            out.add(r);
+            if (out.size() >= limit) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     private Ricetta mapRow(ResultSet rs) throws SQLException {
         Ricetta r = new Ricetta();
         r.setIdRicetta(rs.getLong("id_ricetta"));
         r.setNome(rs.getString("nome"));
         r.setDescrizione(rs.getString("descrizione"));
         r.setDifficolta(rs.getString("difficolta"));
-        r.setTempoPreparazione(rs.getInt("tempo_preparazione"));
+        int tp = rs.getInt("tempo_preparazione");
+        r.setTempoPreparazione(rs.wasNull() ? null : tp);
         return r;
     }
 }
@@ -11,11 +11,22 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public class SessioneDao {
     private final String ownerCfChef;
 
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
     public SessioneDao(String ownerCfChef) {
         if (ownerCfChef == null || ownerCfChef.trim().isEmpty()) {
             throw new IllegalArgumentException("CF_Chef mancante per SessioneDao");
@@ -23,7 +34,9 @@ public class SessioneDao {
         this.ownerCfChef = ownerCfChef.trim();
     }
 
-    private static final String SQL_BASE_SELECT =
+    // il filtro sui corsi ("own") entra in ogni ramo della UNION ALL: ciascun ramo usa l'indice su fk_id_corso
+    private static final String SQL_SESSIONI_TEMPLATE =
+            "WITH own AS ( %s ) " +
             "SELECT x.id, x.fk_id_corso, x.data, x.ora_inizio, x.ora_fine, x.tipo, " +
             "       x.piattaforma, x.via, x.num, x.cap, x.aula, x.posti_max " +
             "FROM ( " +
@@ -40,6 +53,7 @@ public class SessioneDao {
             "           NULL AS aula, " +
             "           NULL AS posti_max " +
             "    FROM sessione_online so " +
+            "    JOIN own ON own.id_corso = so.fk_id_corso " +
             "    UNION ALL " +
             "    SELECT sp.\"idSessionePresenza\" AS id, " +
             "           sp.fk_id_corso, " +
@@ -54,8 +68,8 @@ public class SessioneDao {
             "           sp.aula, " +
             "           sp.posti_max " +
             "    FROM sessione_presenza sp " +
-            ") x " +
-            "JOIN corso c ON c.id_corso = x.fk_id_corso ";
+            "    JOIN own ON own.id_corso = sp.fk_id_corso " +
+            ") x ";
 
 
     private static final String SQL_FIND_RICETTE_BY_SESSP =
@@ -67,6 +81,16 @@ public class SessioneDao {
             " WHERE spr.fk_id_sess_pr = ? AND c.fk_cf_chef = ? " +
             " ORDER BY LOWER(r.nome)";
 
+    private static final String SQL_FIND_RICETTE_BY_CORSO =
+            "SELECT sp.\"idSessionePresenza\" AS id_sess_pr, " +
+            "       r.id_ricetta, r.nome, r.descrizione, r.difficolta, r.tempo_preparazione " +
+            "  FROM sessione_presenza sp " +
+            "  JOIN corso c ON c.id_corso = sp.fk_id_corso " +
+            "  LEFT JOIN sessione_presenza_ricetta spr ON spr.fk_id_sess_pr = sp.\"idSessionePresenza\" " +
+            "  LEFT JOIN ricetta r ON r.id_ricetta = spr.fk_id_ricetta " +
+            " WHERE sp.fk_id_corso = ? AND c.fk_cf_chef = ? " +
+            " ORDER BY sp.\"idSessionePresenza\", LOWER(r.nome)";
+
     private static final String SQL_ADD_LINK =
             "INSERT INTO sessione_presenza_ricetta (fk_id_sess_pr, fk_id_ricetta) " +
             "VALUES (?, ?) " +
@@ -76,25 +100,129 @@ public class SessioneDao {
             "DELETE FROM sessione_presenza_ricetta " +
             " WHERE fk_id_sess_pr = ? AND fk_id_ricetta = ?";
 
+    // il confronto avviene con le righe presenti al momento del salvataggio, sotto lock della sessione
+    private static final String SQL_UPDATE_LINKS =
+            "WITH own AS ( " +
+            "  SELECT sp.\"idSessionePresenza\" AS id, sp.data " +
+            "    FROM sessione_presenza sp " +
+            "    JOIN corso c ON c.id_corso = sp.fk_id_corso " +
+            "   WHERE sp.\"idSessionePresenza\" = ? AND c.fk_cf_chef = ? " +
+            "     FOR UPDATE OF sp " +
+            "), del AS ( " +
+            "  DELETE FROM sessione_presenza_ricetta spr " +
+            "   USING own " +
+            "   WHERE spr.fk_id_sess_pr = own.id AND NOT (spr.fk_id_ricetta = ANY(?)) " +
+            "  RETURNING 1 " +
+            "), ins AS ( " +
+            "  INSERT INTO sessione_presenza_ricetta (fk_id_sess_pr, fk_id_ricetta) " +
+            "  SELECT own.id, r.id FROM own CROSS JOIN unnest(?::bigint[]) AS r(id) " +
+            "  ON CONFLICT (fk_id_sess_pr, fk_id_ricetta) DO NOTHING " +
+            "  RETURNING 1 " +
+            ") " +
+            "SELECT data, (SELECT COUNT(*) FROM ins), (SELECT COUNT(*) FROM del) FROM own";
+
+    private static final String SQL_FIND_BY_CORSO =
+            String.format(SQL_SESSIONI_TEMPLATE,
+                    "SELECT id_corso FROM corso WHERE id_corso = ? AND fk_cf_chef = ?") +
+            "ORDER BY x.data, x.ora_inizio";
+
+    private static final String SQL_FIND_BY_CORSI =
+            String.format(SQL_SESSIONI_TEMPLATE,
+                    "SELECT id_corso FROM corso WHERE id_corso = ANY(?) AND fk_cf_chef = ?") +
+            "ORDER BY x.fk_id_corso, x.data, x.ora_inizio";
+
+    private static final String SQL_DEL_LINKS_BY_SESSIONI =
+            "DELETE FROM sessione_presenza_ricetta WHERE fk_id_sess_pr = ANY(?)";
+
+    private static final String SQL_DEL_ONLINE_BY_IDS =
+            "DELETE FROM sessione_online WHERE fk_id_corso = ? AND idsessioneonline = ANY(?)";
+
+    private static final String SQL_DEL_PRESENZA_BY_IDS =
+            "DELETE FROM sessione_presenza WHERE fk_id_corso = ? AND \"idSessionePresenza\" = ANY(?)";
+
+    private static final String SQL_UPDATE_ONLINE =
+            "UPDATE sessione_online " +
+            "   SET (fk_id_corso, data, ora_inizio, ora_fine, piattaforma) = (?,?,?,?,?) " +
+            " WHERE idsessioneonline = ?";
+
+    private static final String SQL_UPDATE_PRESENZA =
+            "UPDATE sessione_presenza " +
+            "   SET (fk_id_corso, data, ora_inizio, ora_fine, via, num, cap, aula, posti_max) = (?,?,?,?,?,?,?,?,?) " +
+            " WHERE \"idSessionePresenza\" = ?";
+
+    private static final String SQL_INSERT_ONLINE =
+            "INSERT INTO sessione_online " +
+            " (fk_id_corso, data, ora_inizio, ora_fine, piattaforma) " +
+            "VALUES (?,?,?,?,?) " +
+            "RETURNING idsessioneonline";
+
+    private static final String SQL_INSERT_PRESENZA =
+            "INSERT INTO sessione_presenza " +
+            " (fk_id_corso, data, ora_inizio, ora_fine, via, num, cap, aula, posti_max) " +
+            "VALUES (?,?,?,?,?,?,?,?,?) " +
+            "RETURNING \"idSessionePresenza\"";
+
+    private static final String SQL_LOCK_CORSO_OWNED =
+            "SELECT 1 FROM corso WHERE id_corso=? AND fk_cf_chef=? FOR UPDATE";
+
+    private static final String SQL_PRESENZA_OWNED =
+            "SELECT sp.data " +
+            "  FROM sessione_presenza sp " +
+            "  JOIN corso c ON c.id_corso = sp.fk_id_corso " +
+            " WHERE sp.\"idSessionePresenza\" = ? AND c.fk_cf_chef = ? " +
+            " LIMIT 1";
+
     public List<Sessione> findByCorso(long corsoId) throws Exception {
-        String sql = SQL_BASE_SELECT +
-                " WHERE x.fk_id_corso = ? AND c.fk_cf_chef = ? " +
-                " ORDER BY x.data, x.ora_inizio";
+        try (Connection conn = Db.get()) {
+            return findByCorso(conn, corsoId);
+        }
+    }
 
-        List<Sessione> out = new ArrayList<>();
-        try (Connection conn = Db.get();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    public Map<Long, List<Sessione>> findByCorsi(Collection<Long> corsiIds) throws Exception {
+        Map<Long, List<Sessione>> out = new LinkedHashMap<>();
+        findByCorsi(corsiIds, out::put);
+        return out;
+    }
 
-            ps.setLong(1, corsoId);
-            ps.setString(2, ownerCfChef);
+    // una sola query per tutti i corsi; le sessioni arrivano raggruppate per corso, un corso alla volta
+    public void findByCorsi(Collection<Long> corsiIds, BiConsumer<Long, List<Sessione>> perCorso) throws Exception {
+        Objects.requireNonNull(perCorso);
+        if (corsiIds == null || corsiIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = new HashSet<>(corsiIds).stream().filter(Objects::nonNull).toArray(Long[]::new);
 
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(mapRow(rs));
+        try (Connection conn = Db.get()) {
+            // il driver legge a blocchi di fetch size righe solo dentro una transazione
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(SQL_FIND_BY_CORSI)) {
+                ps.setArray(1, conn.createArrayOf("bigint", ids));
+                ps.setString(2, ownerCfChef);
+                ps.setFetchSize(DEFAULT_FETCH_SIZE);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    long corrente = 0;
+                    List<Sessione> gruppo = null;
+                    while (rs.next()) {
+                        long idCorso = rs.getLong("fk_id_corso");
+                        if (gruppo == null || idCorso != corrente) {
+                            if (gruppo != null) {
+                                perCorso.accept(corrente, gruppo);
+                            }
+                            corrente = idCorso;
+                            gruppo = new ArrayList<>();
+                        }
+                        gruppo.add(mapRow(rs));
+                    }
+                    if (gruppo != null) {
+                        perCorso.accept(corrente, gruppo);
+                    }
                 }
             }
+
+            conn.commit();
         }
-        return out;
     }
 
     public List<Ricetta> findRicetteBySessionePresenza(int idSessionePresenza) throws Exception {
@@ -114,8 +242,30 @@ public class SessioneDao {
         return out;
     }
 
+    public Map<Integer, List<Ricetta>> findRicetteByCorso(long corsoId) throws Exception {
+        Map<Integer, List<Ricetta>> out = new HashMap<>();
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_FIND_RICETTE_BY_CORSO)) {
+
+            ps.setLong(1, corsoId);
+            ps.setString(2, ownerCfChef);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    List<Ricetta> lista = out.computeIfAbsent(rs.getInt("id_sess_pr"), k -> new ArrayList<>());
+                    rs.getLong("id_ricetta");
+                    if (!rs.wasNull()) {
+                        lista.add(mapRicetta(rs));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
     public void addRicettaToSessionePresenza(int idSessionePresenza, long idRicetta) throws Exception {
-        if (!existsPresenzaForOwner(idSessionePresenza)) {
+        LocalDate data = presenzaOwnedDate(idSessionePresenza);
+        if (data == null) {
             throw new SQLException("Operazione negata: sessione non dell'owner");
         }
         try (Connection conn = Db.get();
@@ -125,10 +275,12 @@ public class SessioneDao {
             ps.setLong(2, idRicetta);
             ps.executeUpdate();
         }
+        ReportCache.invalida(ownerCfChef, data);
     }
 
     public void removeRicettaFromSessionePresenza(int idSessionePresenza, long idRicetta) throws Exception {
-        if (!existsPresenzaForOwner(idSessionePresenza)) {
+        LocalDate data = presenzaOwnedDate(idSessionePresenza);
+        if (data == null) {
             throw new SQLException("Operazione negata: sessione non dell'owner");
         }
         try (Connection conn = Db.get();
@@ -138,35 +290,58 @@ public class SessioneDao {
             ps.setLong(2, idRicetta);
             ps.executeUpdate();
         }
+        ReportCache.invalida(ownerCfChef, data);
     }
 
-    public void replaceForCorso(long corsoId, List<Sessione> nuove) throws Exception {
-        ensureCourseOwned(corsoId);
+    public record EsitoRicette(int aggiunte, int rimosse) {}
+
+    // dopo la chiamata la sessione ha esattamente le ricette indicate
+    public EsitoRicette updateRicetteSessionePresenza(int idSessionePresenza, Collection<Long> ricette) throws Exception {
+        Set<Long> ids = new HashSet<>(ricette != null ? ricette : Collections.emptyList());
+        ids.remove(null);
+        Object[] arr = ids.toArray();
+
+        try (Connection conn = Db.get();
+             PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_LINKS)) {
 
+            ps.setInt(1, idSessionePresenza);
+            ps.setString(2, ownerCfChef);
+            ps.setArray(3, conn.createArrayOf("bigint", arr));
+            ps.setArray(4, conn.createArrayOf("bigint", arr));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Operazione negata: sessione non dell'owner");
+                }
+                EsitoRicette esito = new EsitoRicette(rs.getInt(2), rs.getInt(3));
+                if (esito.aggiunte() > 0 || esito.rimosse() > 0) {
+                    ReportCache.invalida(ownerCfChef, rs.getObject(1, LocalDate.class));
+                }
+                return esito;
+            }
+        }
+    }
+
+    public void replaceForCorso(long corsoId, List<Sessione> nuove) throws Exception {
         try (Connection conn = Db.get()) {
             conn.setAutoCommit(false);
             try {
-                String delLinks =
-                        "DELETE FROM sessione_presenza_ricetta " +
-                        " WHERE fk_id_sess_pr IN (" +
-                        "   SELECT sp.\"idSessionePresenza\" FROM sessione_presenza sp WHERE sp.fk_id_corso = ?" +
-                        " )";
-                try (PreparedStatement ps = conn.prepareStatement(delLinks)) {
-                    ps.setLong(1, corsoId);
-                    ps.executeUpdate();
-                }
-
-                String delOnline = "DELETE FROM sessione_online WHERE fk_id_corso = ?";
-                try (PreparedStatement ps = conn.prepareStatement(delOnline)) {
-                    ps.setLong(1, corsoId);
-                    ps.executeUpdate();
+                lockCourseOwned(conn, corsoId);
+
+                Map<Integer, SessioneOnline> onlineSalvate = new HashMap<>();
+                Map<Integer, SessionePresenza> presenzeSalvate = new HashMap<>();
+                for (Sessione s : findByCorso(conn, corsoId)) {
+                    if (s instanceof SessioneOnline so) {
+                        onlineSalvate.put(so.getId(), so);
+                    } else if (s instanceof SessionePresenza sp) {
+                        presenzeSalvate.put(sp.getId(), sp);
+                    }
                 }
 
-                String delPresenza = "DELETE FROM sessione_presenza WHERE fk_id_corso = ?";
-                try (PreparedStatement ps = conn.prepareStatement(delPresenza)) {
-                    ps.setLong(1, corsoId);
-                    ps.executeUpdate();
-                }
+                List<Sessione> daAggiornare = new ArrayList<>();
+                List<Sessione> daInserire = new ArrayList<>();
+                Set<Integer> onlineTenute = new HashSet<>();
+                Set<Integer> presenzeTenute = new HashSet<>();
 
                 if (nuove != null) {
                     for (Sessione s : nuove) {
@@ -180,11 +355,39 @@ public class SessioneDao {
                             s.setCorso(c);
                         }
 
-                        insertOn(conn, s);
+                        Sessione salvata = null;
+                        if (s instanceof SessioneOnline && onlineTenute.add(s.getId())) {
+                            salvata = onlineSalvate.get(s.getId());
+                        } else if (s instanceof SessionePresenza && presenzeTenute.add(s.getId())) {
+                            salvata = presenzeSalvate.get(s.getId());
+                        }
+
+                        if (salvata == null) {
+                            daInserire.add(s);
+                        } else if (!sameContent(salvata, s)) {
+                            daAggiornare.add(s);
+                        }
                     }
                 }
 
+                List<Integer> onlineDaEliminare = new ArrayList<>(onlineSalvate.keySet());
+                onlineDaEliminare.removeAll(onlineTenute);
+                List<Integer> presenzeDaEliminare = new ArrayList<>(presenzeSalvate.keySet());
+                presenzeDaEliminare.removeAll(presenzeTenute);
+
+                deleteByIds(conn, corsoId, onlineDaEliminare, presenzeDaEliminare);
+                updateAll(conn, daAggiornare);
+                for (Sessione s : daInserire) {
+                    insertOn(conn, s);
+                }
+
                 conn.commit();
+
+                List<Sessione> toccate = new ArrayList<>(daAggiornare);
+                toccate.addAll(daInserire);
+                toccate.addAll(onlineSalvate.values());
+                toccate.addAll(presenzeSalvate.values());
+                ReportCache.invalidaSessioni(ownerCfChef, toccate);
             } catch (Exception ex) {
                 conn.rollback();
                 throw ex;
@@ -197,10 +400,108 @@ public class SessioneDao {
         }
     }
 
+    private List<Sessione> findByCorso(Connection conn, long corsoId) throws SQLException {
+        List<Sessione> out = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SQL_FIND_BY_CORSO)) {
+            ps.setLong(1, corsoId);
+            ps.setString(2, ownerCfChef);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapRow(rs));
+                }
+            }
+        }
+        return out;
+    }
+
+    private void deleteByIds(Connection conn, long corsoId,
+                             List<Integer> online, List<Integer> presenze) throws SQLException {
+        if (!online.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_DEL_ONLINE_BY_IDS)) {
+                ps.setLong(1, corsoId);
+                ps.setArray(2, conn.createArrayOf("integer", online.toArray()));
+                ps.executeUpdate();
+            }
+        }
+        if (!presenze.isEmpty()) {
+            Array ids = conn.createArrayOf("integer", presenze.toArray());
+            try (PreparedStatement ps = conn.prepareStatement(SQL_DEL_LINKS_BY_SESSIONI)) {
+                ps.setArray(1, ids);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(SQL_DEL_PRESENZA_BY_IDS)) {
+                ps.setLong(1, corsoId);
+                ps.setArray(2, ids);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void updateAll(Connection conn, List<Sessione> sessioni) throws SQLException {
+        if (sessioni.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement psOnline = conn.prepareStatement(SQL_UPDATE_ONLINE);
+             PreparedStatement psPresenza = conn.prepareStatement(SQL_UPDATE_PRESENZA)) {
+
+            boolean anyOnline = false;
+            boolean anyPresenza = false;
+
+            for (Sessione s : sessioni) {
+                if (s instanceof SessioneOnline so) {
+                    bindCommon(psOnline, so);
+                    bindOnline(psOnline, so);
+                    psOnline.setInt(6, so.getId());
+                    psOnline.addBatch();
+                    anyOnline = true;
+                } else if (s instanceof SessionePresenza sp) {
+                    bindCommon(psPresenza, sp);
+                    bindPresenza(psPresenza, sp);
+                    psPresenza.setInt(10, sp.getId());
+                    psPresenza.addBatch();
+                    anyPresenza = true;
+                }
+            }
+
+            if (anyOnline) {
+                psOnline.executeBatch();
+            }
+            if (anyPresenza) {
+                psPresenza.executeBatch();
+            }
+        }
+    }
+
+    private boolean sameContent(Sessione a, Sessione b) {
+        if (!Objects.equals(a.getData(), b.getData())
+                || !Objects.equals(a.getOraInizio(), b.getOraInizio())
+                || !Objects.equals(a.getOraFine(), b.getOraFine())) {
+            return false;
+        }
+        if (a instanceof SessioneOnline oa && b instanceof SessioneOnline ob) {
+            return Objects.equals(nullSafe(oa.getPiattaforma()), nullSafe(ob.getPiattaforma()));
+        }
+        if (a instanceof SessionePresenza pa && b instanceof SessionePresenza pb) {
+            return Objects.equals(nullSafe(pa.getVia()), nullSafe(pb.getVia()))
+                    && Objects.equals(nullSafe(pa.getNum()), nullSafe(pb.getNum()))
+                    && pa.getCap() == pb.getCap()
+                    && Objects.equals(nullSafe(pa.getAula()), nullSafe(pb.getAula()))
+                    && pa.getPostiMax() == pb.getPostiMax();
+        }
+        return false;
+    }
+
     private void bindCommon(PreparedStatement ps, Sessione s) throws SQLException {
         if (s.getCorso() == null || s.getCorso().getIdCorso() <= 0) {
             throw new SQLException("corso_id mancante/inesistente");
         }
+        bindCommon(ps, s.getCorso().getIdCorso(), s);
+    }
+
+    // usati anche da CorsoDao, perché inserimenti e modifiche scrivano gli stessi valori
+    static void bindCommon(PreparedStatement ps, long corsoId, Sessione s) throws SQLException {
         if (s.getData() == null) {
             throw new SQLException("data obbligatoria");
         }
@@ -211,12 +512,35 @@ public class SessioneDao {
             throw new SQLException("ora_fine deve essere successiva a ora_inizio");
         }
 
-        ps.setLong(1, s.getCorso().getIdCorso());
+        ps.setLong(1, corsoId);
         ps.setObject(2, s.getData());
         ps.setObject(3, s.getOraInizio());
         ps.setObject(4, s.getOraFine());
     }
 
+    static void bindOnline(PreparedStatement ps, SessioneOnline so) throws SQLException {
+        ps.setString(5, nullSafe(so.getPiattaforma()));
+    }
+
+    static void bindPresenza(PreparedStatement ps, SessionePresenza sp) throws SQLException {
+        ps.setString(5, nullSafe(sp.getVia()));
+        ps.setString(6, nullSafe(sp.getNum()));
+
+        if (sp.getCap() == 0) {
+            ps.setNull(7, Types.INTEGER);
+        } else {
+            ps.setInt(7, sp.getCap());
+        }
+
+        ps.setString(8, nullSafe(sp.getAula()));
+
+        if (sp.getPostiMax() == 0) {
+            ps.setNull(9, Types.INTEGER);
+        } else {
+            ps.setInt(9, sp.getPostiMax());
+        }
+    }
+
     private Sessione mapRow(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         long corsoId = rs.getLong("fk_id_corso");
@@ -247,11 +571,8 @@ public class SessioneDao {
         }
     }
 
-    private void ensureCourseOwned(long corsoId) throws Exception {
-        String sql = "SELECT 1 FROM corso WHERE id_corso=? AND fk_cf_chef=?";
-        try (Connection conn = Db.get();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
+    private void lockCourseOwned(Connection conn, long corsoId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_LOCK_CORSO_OWNED)) {
             ps.setLong(1, corsoId);
             ps.setString(2, ownerCfChef);
 
@@ -263,22 +584,15 @@ public class SessioneDao {
         }
     }
 
-   private boolean existsPresenzaForOwner(int idSessionePresenza) throws Exception {
-    String sql =
-            "SELECT 1 " +
-            "  FROM sessione_presenza sp " +
-            "  JOIN corso c ON c.id_corso = sp.fk_id_corso " +
-            " WHERE sp.\"idSessionePresenza\" = ? AND c.fk_cf_chef = ? " +
-            " LIMIT 1";
-
+   private LocalDate presenzaOwnedDate(int idSessionePresenza) throws Exception {
     try (Connection conn = Db.get();
-         PreparedStatement ps = conn.prepareStatement(sql)) {
+         PreparedStatement ps = conn.prepareStatement(SQL_PRESENZA_OWNED)) {
 
         ps.setInt(1, idSessionePresenza);
         ps.setString(2, ownerCfChef);
 
         try (ResultSet rs = ps.executeQuery()) {
-            return rs.next();
+            return rs.next() ? rs.getObject(1, LocalDate.class) : null;
         }
     }
 }
@@ -292,27 +606,21 @@ public class SessioneDao {
         r.setDifficolta(rs.getString("difficolta"));
 
         int tp = rs.getInt("tempo_preparazione");
-        r.setTempoPreparazione(rs.wasNull() ? 0 : tp);
+        r.setTempoPreparazione(rs.wasNull() ? null : tp);
 
         return r;
     }
 
-    private String nullSafe(String s) {
+    private static String nullSafe(String s) {
         return (s == null || s.trim().isEmpty()) ? null : s.trim();
     }
 
     private int insertOn(Connection conn, Sessione s) throws Exception {
         if (s instanceof SessioneOnline) {
             SessioneOnline so = (SessioneOnline) s;
-            String sql =
-                    "INSERT INTO sessione_online " +
-                    " (fk_id_corso, data, ora_inizio, ora_fine, piattaforma) " +
-                    "VALUES (?,?,?,?,?) " +
-                    "RETURNING idsessioneonline";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_ONLINE)) {
                 bindCommon(ps, s);
-                ps.setString(5, nullSafe(so.getPiattaforma()));
+                bindOnline(ps, so);
 
                 try (ResultSet rs = ps.executeQuery()) {
                     rs.next();
@@ -323,30 +631,9 @@ public class SessioneDao {
             }
         } else if (s instanceof SessionePresenza) {
             SessionePresenza sp = (SessionePresenza) s;
-            String sql =
-                    "INSERT INTO sessione_presenza " +
-                    " (fk_id_corso, data, ora_inizio, ora_fine, via, num, cap, aula, posti_max) " +
-                    "VALUES (?,?,?,?,?,?,?,?,?) " +
-                    "RETURNING \"idSessionePresenza\"";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_PRESENZA)) {
                 bindCommon(ps, s);
-                ps.setString(5, nullSafe(sp.getVia()));
-                ps.setString(6, nullSafe(sp.getNum()));
-
-                if (sp.getCap() == 0) {
-                    ps.setNull(7, Types.INTEGER);
-                } else {
-                    ps.setInt(7, sp.getCap());
-                }
-
-                ps.setString(8, nullSafe(sp.getAula()));
-
-                if (sp.getPostiMax() == 0) {
-                    ps.setNull(9, Types.INTEGER);
-                } else {
-                    ps.setInt(9, sp.getPostiMax());
-                }
+                bindPresenza(ps, sp);
 
                 try (ResultSet rs = ps.executeQuery()) {
                     rs.next();
@@ -9,14 +9,14 @@ public class Ricetta {
     private String nome;
     private String descrizione;
     private String difficolta; 
-    private int tempoPreparazione; 
+    private Integer tempoPreparazione; 
 
     
     private final List<SessionePresenza> sessioni = new ArrayList<>();
 
     public Ricetta() {}
 
-    public Ricetta(long id, String nome, String descrizione, String difficolta, int tempoPreparazione) {
+    public Ricetta(long id, String nome, String descrizione, String difficolta, Integer tempoPreparazione) {
         this.idRicetta = id;
         this.nome = nome;
         this.descrizione = descrizione;
@@ -58,11 +58,11 @@ public class Ricetta {
         this.difficolta = difficolta;
     }
 
-    public int getTempoPreparazione() {
+    public Integer getTempoPreparazione() {
         return tempoPreparazione;
     }
 
-    public void setTempoPreparazione(int tempoPreparazione) {
+    public void setTempoPreparazione(Integer tempoPreparazione) {
         this.tempoPreparazione = tempoPreparazione;
     }
 
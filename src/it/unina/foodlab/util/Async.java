@@ -0,0 +1,65 @@
+package it.unina.foodlab.util;
+
+import javafx.concurrent.Task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public final class Async {
+
+    @FunctionalInterface
+    public interface DbCall<T> {
+        T call() throws Exception;
+    }
+
+    // pool fisso e più piccolo di quello delle connessioni: i task in attesa di una connessione
+    // restano in coda qui invece di occupare tutte le connessioni e far scadere le acquisizioni
+    private static final int WORKERS = Math.max(1, Db.intConfig("pool.maxSize", 8) / 2);
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+        private final AtomicInteger n = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "db-worker-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private Async() {}
+
+    public static <T> Task<T> run(DbCall<T> call, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return call.call();
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            if (onSuccess != null) {
+                onSuccess.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> {
+            Throwable ex = task.getException();
+            if (ex != null) {
+                ex.printStackTrace();
+            }
+            if (onError != null) {
+                onError.accept(ex);
+            }
+        });
+
+        EXECUTOR.execute(task);
+        return task;
+    }
+
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+}
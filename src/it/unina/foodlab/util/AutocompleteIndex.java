@@ -0,0 +1,222 @@
+package it.unina.foodlab.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class AutocompleteIndex {
+
+    private static final Pattern DIACRITICI = Pattern.compile("\\p{M}+");
+    private static final double SOGLIA_FUZZY = 0.3;
+
+    private final String[] voci;
+    private final String[] chiavi;
+    // per la query vuota: tutte le voci già in ordine alfabetico
+    private final String[] ordinate;
+    private final Map<String, Integer> esatte;
+
+    // una chiave per ogni inizio di parola, ordinate, con la voce di provenienza
+    private final String[] prefissi;
+    private final int[] prefissiVoce;
+
+    private final Map<String, int[]> trigrammi;
+    private final int[] numTrigrammi;
+
+    public AutocompleteIndex(Collection<String> valori) {
+        Set<String> distinti = new LinkedHashSet<>();
+        if (valori != null) {
+            for (String v : valori) {
+                if (v != null && !v.trim().isEmpty()) {
+                    distinti.add(v.trim());
+                }
+            }
+        }
+
+        voci = distinti.toArray(new String[0]);
+        ordinate = voci.clone();
+        Arrays.sort(ordinate, String.CASE_INSENSITIVE_ORDER);
+        chiavi = new String[voci.length];
+        esatte = new HashMap<>();
+        for (int i = 0; i < voci.length; i++) {
+            chiavi[i] = fold(voci[i]);
+            esatte.putIfAbsent(chiavi[i], i);
+        }
+
+        List<Suffisso> suffissi = new ArrayList<>();
+        for (int i = 0; i < chiavi.length; i++) {
+            String k = chiavi[i];
+            for (int p = 0; p < k.length(); p++) {
+                if (p == 0 || (k.charAt(p - 1) == ' ' && k.charAt(p) != ' ')) {
+                    suffissi.add(new Suffisso(k.substring(p), i, p == 0));
+                }
+            }
+        }
+        suffissi.sort((a, b) -> {
+            int c = a.chiave.compareTo(b.chiave);
+            if (c != 0) return c;
+            if (a.inizio != b.inizio) return a.inizio ? -1 : 1;
+            return voci[a.voce].compareToIgnoreCase(voci[b.voce]);
+        });
+        prefissi = new String[suffissi.size()];
+        prefissiVoce = new int[suffissi.size()];
+        for (int i = 0; i < suffissi.size(); i++) {
+            prefissi[i] = suffissi.get(i).chiave;
+            prefissiVoce[i] = suffissi.get(i).voce;
+        }
+
+        String[][] perVoce = new String[chiavi.length][];
+        Map<String, int[]> conteggi = new HashMap<>();
+        numTrigrammi = new int[chiavi.length];
+        for (int i = 0; i < chiavi.length; i++) {
+            perVoce[i] = trigrammiDi(chiavi[i]).toArray(new String[0]);
+            numTrigrammi[i] = perVoce[i].length;
+            for (String t : perVoce[i]) {
+                conteggi.computeIfAbsent(t, x -> new int[1])[0]++;
+            }
+        }
+        trigrammi = new HashMap<>(conteggi.size() * 2);
+        Map<String, int[]> riempiti = new HashMap<>(conteggi.size() * 2);
+        for (int i = 0; i < chiavi.length; i++) {
+            for (String t : perVoce[i]) {
+                int[] ids = trigrammi.computeIfAbsent(t, x -> new int[conteggi.get(x)[0]]);
+                int[] n = riempiti.computeIfAbsent(t, x -> new int[1]);
+                ids[n[0]++] = i;
+            }
+        }
+    }
+
+    public int size() {
+        return voci.length;
+    }
+
+    public String canonico(String testo) {
+        if (testo == null) {
+            return null;
+        }
+        Integer i = esatte.get(fold(testo));
+        return i == null ? null : voci[i];
+    }
+
+    public List<String> suggerisci(String testo, int k) {
+        List<String> out = new ArrayList<>(Math.max(0, k));
+        if (k <= 0 || voci.length == 0) {
+            return out;
+        }
+
+        String q = fold(testo == null ? "" : testo);
+        if (q.isEmpty()) {
+            out.addAll(Arrays.asList(ordinate).subList(0, Math.min(k, ordinate.length)));
+            return out;
+        }
+
+        Set<Integer> scelte = new LinkedHashSet<>();
+        int from = lowerBound(q);
+        for (int i = from; i < prefissi.length && scelte.size() < k && prefissi[i].startsWith(q); i++) {
+            scelte.add(prefissiVoce[i]);
+        }
+
+        if (scelte.size() < k) {
+            for (int i : fuzzy(q, k - scelte.size(), scelte)) {
+                scelte.add(i);
+            }
+        }
+
+        for (int i : scelte) {
+            out.add(voci[i]);
+        }
+        return out;
+    }
+
+    private int lowerBound(String q) {
+        int lo = 0;
+        int hi = prefissi.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefissi[mid].compareTo(q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private List<Integer> fuzzy(String q, int k, Set<Integer> escluse) {
+        Set<String> tq = trigrammiDi(q);
+        if (tq.isEmpty()) {
+            return List.of();
+        }
+
+        int[] comuni = new int[voci.length];
+        int[] toccate = new int[voci.length];
+        int numToccate = 0;
+        for (String t : tq) {
+            int[] ids = trigrammi.get(t);
+            if (ids == null) {
+                continue;
+            }
+            for (int id : ids) {
+                if (comuni[id]++ == 0) {
+                    toccate[numToccate++] = id;
+                }
+            }
+        }
+
+        // tiene i k migliori senza ordinare tutti i candidati
+        int[] migliori = new int[k];
+        double[] punteggi = new double[k];
+        int trovati = 0;
+        for (int j = 0; j < numToccate; j++) {
+            int id = toccate[j];
+            if (escluse.contains(id)) {
+                continue;
+            }
+            int n = comuni[id];
+            int tot = tq.size() + numTrigrammi[id] - n;
+            double score = tot == 0 ? 0 : (double) n / tot;
+            if (score < SOGLIA_FUZZY || (trovati == k && score <= punteggi[k - 1])) {
+                continue;
+            }
+            int pos = trovati < k ? trovati++ : k - 1;
+            while (pos > 0 && punteggi[pos - 1] < score) {
+                punteggi[pos] = punteggi[pos - 1];
+                migliori[pos] = migliori[pos - 1];
+                pos--;
+            }
+            punteggi[pos] = score;
+            migliori[pos] = id;
+        }
+
+        List<Integer> out = new ArrayList<>(trovati);
+        for (int i = 0; i < trovati; i++) {
+            out.add(migliori[i]);
+        }
+        return out;
+    }
+
+    private static Set<String> trigrammiDi(String chiave) {
+        Set<String> out = new HashSet<>();
+        String s = "  " + chiave + " ";
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out.add(s.substring(i, i + 3));
+        }
+        return out;
+    }
+
+    public static String fold(String s) {
+        String n = Normalizer.normalize(s.trim(), Normalizer.Form.NFD);
+        n = DIACRITICI.matcher(n).replaceAll("");
+        return n.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private record Suffisso(String chiave, int voce, boolean inizio) {}
+}
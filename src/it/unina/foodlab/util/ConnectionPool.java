@@ -0,0 +1,323 @@
+package it.unina.foodlab.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import org.postgresql.PGConnection;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+final class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String pwd;
+    private final String schema;
+
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long validateAfterMs;
+    private final long acquireTimeoutMs;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+    private final int prepareThreshold;
+
+    private final Semaphore permits;
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    // pid dei backend delle connessioni del pool, per riconoscere le notifiche causate da noi
+    private final Set<Integer> backendPids = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService reaper;
+
+    private volatile boolean closed = false;
+
+    ConnectionPool(String url, String user, String pwd, String schema,
+                   int maxSize, long idleTimeoutMs, long validateAfterMs,
+                   long acquireTimeoutMs, int validationTimeoutSec,
+                   int statementCacheSize, int prepareThreshold) {
+        this.url = url;
+        this.user = user;
+        this.pwd = pwd;
+        this.schema = schema;
+        this.maxSize = Math.max(1, maxSize);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validateAfterMs = validateAfterMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.validationTimeoutSec = Math.max(1, validationTimeoutSec);
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.prepareThreshold = prepareThreshold;
+        this.permits = new Semaphore(this.maxSize, true);
+
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        if (idleTimeoutMs > 0) {
+            long period = Math.max(1000L, idleTimeoutMs / 2);
+            reaper.scheduleWithFixedDelay(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Pool di connessioni chiuso");
+        }
+
+        boolean ok;
+        try {
+            ok = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attesa connessione interrotta", e);
+        }
+        if (!ok) {
+            throw new SQLException("Nessuna connessione disponibile entro " + acquireTimeoutMs + " ms (max " + maxSize + ")");
+        }
+
+        try {
+            Physical physical = takeIdle();
+            if (physical == null) {
+                physical = open();
+            }
+            return wrap(physical);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    void shutdown() {
+        closed = true;
+        reaper.shutdownNow();
+
+        List<Idle> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (Idle i : toClose) {
+            closeQuietly(i.conn);
+        }
+    }
+
+    private Physical takeIdle() {
+        while (true) {
+            Idle candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+
+            long idleFor = System.currentTimeMillis() - candidate.since;
+            if (idleTimeoutMs > 0 && idleFor > idleTimeoutMs) {
+                closeQuietly(candidate.conn);
+                continue;
+            }
+            if (idleFor > validateAfterMs && !isValid(candidate.conn)) {
+                closeQuietly(candidate.conn);
+                continue;
+            }
+            return candidate.conn;
+        }
+    }
+
+    private Physical open() throws SQLException {
+        Connection c = connect();
+        Physical p;
+        try {
+            p = new Physical(c, new StatementCache(c, statementCacheSize));
+        } catch (SQLException ex) {
+            try {
+                c.close();
+            } catch (Exception ignore) {
+            }
+            throw ex;
+        }
+        backendPids.add(p.pid);
+        return p;
+    }
+
+    Connection connect() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", pwd);
+        props.setProperty("prepareThreshold", String.valueOf(prepareThreshold));
+
+        Connection c = DriverManager.getConnection(url, props);
+        try (Statement st = c.createStatement()) {
+            st.execute("set search_path to " + schema);
+        } catch (SQLException ex) {
+            try {
+                c.close();
+            } catch (Exception ignore) {
+            }
+            throw ex;
+        }
+        return c;
+    }
+
+    private void release(Physical physical, boolean broken) {
+        try {
+            if (closed || broken || physical.conn.isClosed()) {
+                closeQuietly(physical);
+                return;
+            }
+            if (!physical.conn.getAutoCommit()) {
+                physical.conn.rollback();
+                physical.conn.setAutoCommit(true);
+            }
+            synchronized (idle) {
+                idle.addFirst(new Idle(physical, System.currentTimeMillis()));
+            }
+        } catch (SQLException ex) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        List<Physical> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<Idle> it = idle.iterator();
+            while (it.hasNext()) {
+                Idle i = it.next();
+                if (now - i.since > idleTimeoutMs) {
+                    it.remove();
+                    expired.add(i.conn);
+                }
+            }
+        }
+        for (Physical p : expired) {
+            closeQuietly(p);
+        }
+    }
+
+    private boolean isValid(Physical p) {
+        try {
+            return p.conn.isValid(validationTimeoutSec);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private Connection wrap(Physical physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handler(physical));
+    }
+
+    boolean isBackendProprio(int pid) {
+        return backendPids.contains(pid);
+    }
+
+    private void closeQuietly(Physical p) {
+        backendPids.remove(p.pid);
+        p.statements.closeAll();
+        try {
+            p.conn.close();
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static final class Physical {
+        final Connection conn;
+        final StatementCache statements;
+        final int pid;
+
+        Physical(Connection conn, StatementCache statements) throws SQLException {
+            this.conn = conn;
+            this.statements = statements;
+            this.pid = conn.unwrap(PGConnection.class).getBackendPID();
+        }
+    }
+
+    private static final class Idle {
+        final Physical conn;
+        final long since;
+
+        Idle(Physical conn, long since) {
+            this.conn = conn;
+            this.since = since;
+        }
+    }
+
+    private final class Handler implements InvocationHandler {
+        private final Physical physical;
+        private boolean returned = false;
+        private boolean broken = false;
+
+        Handler(Physical physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.conn.isClosed();
+                case "unwrap":
+                    if (args != null && args[0] instanceof Class<?> cls && cls.isInstance(physical.conn)) {
+                        return physical.conn;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical.conn + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connessione già restituita al pool");
+            }
+
+            try {
+                if ("prepareStatement".equals(method.getName()) && args != null && args.length == 1) {
+                    return physical.statements.prepare((String) args[0], (Connection) proxy);
+                }
+                return method.invoke(physical.conn, args);
+            } catch (InvocationTargetException ite) {
+                Throwable cause = ite.getCause();
+                if (cause instanceof SQLException sqle && isFatal(sqle)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private boolean isFatal(SQLException ex) {
+            String state = ex.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+}
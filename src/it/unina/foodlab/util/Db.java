@@ -2,9 +2,7 @@ package it.unina.foodlab.util;
 
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.Properties;
 
 public class Db {
@@ -14,6 +12,9 @@ public class Db {
     private static String pwd;
     private static String schema;
 
+    private static ConnectionPool pool;
+    private static Properties config;
+
     static {
         try {
             Class.forName("org.postgresql.Driver");
@@ -23,6 +24,7 @@ public class Db {
                 if (in == null) throw new RuntimeException("db.properties non trovato nel classpath");
                 p.load(in);
             }
+            config = p;
 
             url = p.getProperty("url");
             user = p.getProperty("user");
@@ -34,16 +36,59 @@ public class Db {
             } else {
                 schema = "public";
             }
+
+            pool = new ConnectionPool(url, user, pwd, schema,
+                    intProp(p, "pool.maxSize", 8),
+                    longProp(p, "pool.idleTimeoutMs", 300_000L),
+                    longProp(p, "pool.validateAfterMs", 30_000L),
+                    longProp(p, "pool.acquireTimeoutMs", 10_000L),
+                    intProp(p, "pool.validationTimeoutSec", 2),
+                    intProp(p, "pool.statementCacheSize", 64),
+                    intProp(p, "prepareThreshold", 1));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
     public static Connection get() throws SQLException {
-        Connection c = DriverManager.getConnection(url, user, pwd);
-        try (Statement st = c.createStatement()) {
-            st.execute("set search_path to " + schema);
+        return pool.acquire();
+    }
+
+    static Connection openDedicated() throws SQLException {
+        return pool.connect();
+    }
+
+    static boolean isBackendProprio(int pid) {
+        return pool != null && pool.isBackendProprio(pid);
+    }
+
+    public static void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public static int intConfig(String key, int def) {
+        return intProp(config, key, def);
+    }
+
+    private static int intProp(Properties p, String key, int def) {
+        String v = p.getProperty(key);
+        if (v == null || v.trim().isEmpty()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static long longProp(Properties p, String key, long def) {
+        String v = p.getProperty(key);
+        if (v == null || v.trim().isEmpty()) return def;
+        try {
+            return Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            return def;
         }
-        return c;
     }
 }
@@ -2,9 +2,11 @@ package it.unina.foodlab.util;
 
 import it.unina.foodlab.controller.LoginController;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
@@ -12,6 +14,21 @@ public class Main extends Application {
 
     @Override
     public void start(Stage stage) throws Exception {
+        try {
+            Migrazioni.applica();
+        } catch (Exception ex) {
+            // le migrazioni sono in un'unica transazione: se una fallisce lo schema non è aggiornato
+            ex.printStackTrace();
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("UninaFoodLab");
+            alert.setHeaderText("Impossibile aggiornare il database");
+            alert.setContentText(ex.getMessage());
+            alert.showAndWait();
+            Platform.exit();
+            return;
+        }
+        Notifiche.avvia();
+
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/it/unina/foodlab/ui/LoginFrame.fxml"));
         Parent root = loader.load();
 
@@ -26,6 +43,14 @@ public class Main extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        Notifiche.ferma();
+        Async.shutdown();
+        PasswordHasher.shutdown();
+        Db.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,92 @@
+package it.unina.foodlab.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+public final class Migrazioni {
+
+    private static final String BASE_PATH = "/db/migration/";
+
+    private static final String[] SCRIPTS = {
+            "001_indici_sessioni.sql",
+            "002_indice_corsi_pagina.sql",
+            "003_report_rollup.sql",
+            "004_notifiche_invalidazione.sql",
+            "005_corso_versioni.sql",
+            "006_argomenti.sql",
+            "007_ricerca_ricette.sql",
+            "008_ricetta_versioni.sql",
+            "009_chef_username_unico.sql",
+            "010_chef_password_hash.sql",
+            "011_ricetta_ordine_c.sql"
+    };
+
+    private static final long LOCK_KEY = 0x466F6F644C6162L;
+
+    private static final String SQL_CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS schema_migrazioni (" +
+            "  versione    varchar(100) PRIMARY KEY, " +
+            "  applicata_il timestamptz NOT NULL DEFAULT now()" +
+            ")";
+
+    private static final String SQL_APPLIED = "SELECT versione FROM schema_migrazioni";
+
+    private static final String SQL_MARK = "INSERT INTO schema_migrazioni (versione) VALUES (?)";
+
+    private Migrazioni() {}
+
+    public static void applica() throws SQLException, IOException {
+        try (Connection conn = Db.get()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+                    st.execute(SQL_CREATE_TABLE);
+                }
+
+                Set<String> applicate = new HashSet<>();
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery(SQL_APPLIED)) {
+                    while (rs.next()) {
+                        applicate.add(rs.getString(1));
+                    }
+                }
+
+                for (String script : SCRIPTS) {
+                    if (applicate.contains(script)) {
+                        continue;
+                    }
+                    try (Statement st = conn.createStatement()) {
+                        st.execute(load(script));
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(SQL_MARK)) {
+                        ps.setString(1, script);
+                        ps.executeUpdate();
+                    }
+                }
+
+                conn.commit();
+            } catch (SQLException | IOException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    private static String load(String script) throws IOException {
+        try (InputStream in = Migrazioni.class.getResourceAsStream(BASE_PATH + script)) {
+            if (in == null) {
+                throw new IOException("Script di migrazione non trovato: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package it.unina.foodlab.util;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public final class Notifiche {
+
+    public static final String CANALE = "foodlab_invalidate";
+
+    public static final String TUTTO = "*";
+
+    private static final int ATTESA_MS = 10_000;
+    private static final long RICONNESSIONE_MAX_MS = 30_000L;
+
+    // propria: la modifica è stata fatta da una connessione di questo client
+    public record Evento(String tabella, String op, Long id, String cfChef, YearMonth mese, boolean propria) {
+
+        public boolean isTutto() {
+            return TUTTO.equals(tabella);
+        }
+    }
+
+    private static final List<Consumer<Evento>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static Thread thread;
+    private static volatile boolean attivo = false;
+    private static volatile Connection conn;
+
+    private Notifiche() {}
+
+    public static void aggiungiListener(Consumer<Evento> listener) {
+        if (listener != null) {
+            LISTENERS.add(listener);
+        }
+    }
+
+    public static void rimuoviListener(Consumer<Evento> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static synchronized void avvia() {
+        if (thread != null) {
+            return;
+        }
+        attivo = true;
+        thread = new Thread(Notifiche::ciclo, "db-notifiche");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static synchronized void ferma() {
+        attivo = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        chiudi();
+    }
+
+    private static void ciclo() {
+        long attesa = 1_000L;
+        boolean primaConnessione = true;
+
+        while (attivo) {
+            try {
+                conn = Db.openDedicated();
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CANALE);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+
+                // durante la disconnessione possono essere andate perse delle notifiche
+                if (!primaConnessione) {
+                    dispatch(new Evento(TUTTO, "reset", null, null, null, false));
+                }
+                primaConnessione = false;
+                attesa = 1_000L;
+
+                while (attivo) {
+                    PGNotification[] arrivate = pg.getNotifications(ATTESA_MS);
+                    if (arrivate == null) {
+                        continue;
+                    }
+                    for (PGNotification n : arrivate) {
+                        Evento e = parse(n.getParameter(), Db.isBackendProprio(n.getPID()));
+                        if (e != null) {
+                            dispatch(e);
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!attivo) {
+                    break;
+                }
+                ex.printStackTrace();
+            } finally {
+                chiudi();
+            }
+
+            try {
+                Thread.sleep(attesa);
+            } catch (InterruptedException ie) {
+                break;
+            }
+            attesa = Math.min(attesa * 2, RICONNESSIONE_MAX_MS);
+        }
+    }
+
+    static Evento parse(String payload, boolean propria) {
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        String[] p = payload.split("\\|", -1);
+        if (p.length < 5) {
+            return null;
+        }
+
+        Long id = null;
+        if (!p[2].isEmpty()) {
+            try {
+                id = Long.parseLong(p[2]);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+
+        YearMonth mese = null;
+        if (!p[4].isEmpty()) {
+            try {
+                mese = YearMonth.parse(p[4]);
+            } catch (DateTimeParseException ignore) {
+            }
+        }
+
+        String cf = p[3].isEmpty() ? null : p[3].trim();
+        return new Evento(p[0], p[1], id, cf, mese, propria);
+    }
+
+    private static void dispatch(Evento e) {
+        for (Consumer<Evento> l : LISTENERS) {
+            try {
+                l.accept(e);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static void chiudi() {
+        Connection c = conn;
+        conn = null;
+        if (c != null) {
+            try {
+                c.close();
+            } catch (Exception ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package it.unina.foodlab.util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// formato: pbkdf2-sha256$<iterazioni>$<salt>$<hash>; il calcolo gira su un pool dedicato e limitato
+public final class PasswordHasher {
+
+    private static final String PREFISSO = "pbkdf2-sha256";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final int ITERAZIONI = Math.max(10_000, Db.intConfig("password.iterazioni", 210_000));
+    private static final int WORKERS = Math.max(1, Db.intConfig("password.workers",
+            Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private static final int CODA_MAX = Math.max(1, Db.intConfig("password.codaMax", 64));
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CODA_MAX),
+            new ThreadFactory() {
+                private final AtomicInteger n = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "password-hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    // usato quando l'utente non esiste, perché la risposta costi quanto una verifica vera
+    private static final String HASH_FITTIZIO = calcola("fittizio".toCharArray(), new byte[SALT_BYTES], ITERAZIONI);
+
+    private PasswordHasher() {}
+
+    public static String hash(String password) throws PasswordException {
+        char[] pwd = password.toCharArray();
+        return esegui(() -> {
+            byte[] salt = new byte[SALT_BYTES];
+            RANDOM.nextBytes(salt);
+            return calcola(pwd, salt, ITERAZIONI);
+        });
+    }
+
+    public static boolean verifica(String password, String memorizzato) throws PasswordException {
+        char[] pwd = password.toCharArray();
+        String atteso = memorizzato != null ? memorizzato : HASH_FITTIZIO;
+        boolean esiste = memorizzato != null;
+
+        if (!isHash(atteso)) {
+            // valore in chiaro di prima della migrazione
+            return MessageDigest.isEqual(
+                    password.getBytes(StandardCharsets.UTF_8),
+                    atteso.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return esegui(() -> {
+            String[] p = atteso.split("\\$");
+            int iterazioni = Integer.parseInt(p[1]);
+            byte[] salt = Base64.getDecoder().decode(p[2]);
+            String calcolato = calcola(pwd, salt, iterazioni);
+            return esiste && MessageDigest.isEqual(
+                    calcolato.getBytes(StandardCharsets.US_ASCII),
+                    atteso.getBytes(StandardCharsets.US_ASCII));
+        });
+    }
+
+    public static boolean isHash(String memorizzato) {
+        if (memorizzato == null || !memorizzato.startsWith(PREFISSO + "$")) {
+            return false;
+        }
+        String[] p = memorizzato.split("\\$");
+        if (p.length != 4) {
+            return false;
+        }
+        try {
+            Integer.parseInt(p[1]);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // true se il valore è in chiaro o è stato calcolato con un costo inferiore a quello attuale
+    public static boolean daAggiornare(String memorizzato) {
+        if (!isHash(memorizzato)) {
+            return true;
+        }
+        return Integer.parseInt(memorizzato.split("\\$")[1]) < ITERAZIONI;
+    }
+
+    private static String calcola(char[] password, byte[] salt, int iterazioni) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterazioni, HASH_BITS);
+        try {
+            byte[] h = SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+            Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+            return PREFISSO + "$" + iterazioni + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(h);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 non disponibile", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static <T> T esegui(Callable<T> lavoro) throws PasswordException {
+        Future<T> f;
+        try {
+            f = EXECUTOR.submit(lavoro);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordException("Troppi accessi contemporanei, riprova tra poco.", e);
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordException("Verifica password interrotta.", e);
+        } catch (ExecutionException e) {
+            throw new PasswordException("Errore nella verifica della password.", e.getCause());
+        }
+    }
+
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    public static class PasswordException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public PasswordException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package it.unina.foodlab.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+
+    private final LinkedHashMap<String, PreparedStatement> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<PreparedStatement, Boolean> inUse = new IdentityHashMap<>();
+
+    StatementCache(Connection physical, int maxSize) {
+        this.physical = physical;
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+        if (maxSize == 0) {
+            return physical.prepareStatement(sql);
+        }
+
+        PreparedStatement ps = cache.get(sql);
+        if (ps != null && inUse.containsKey(ps)) {
+            return physical.prepareStatement(sql);
+        }
+
+        if (ps == null || ps.isClosed()) {
+            ps = physical.prepareStatement(sql);
+            cache.put(sql, ps);
+            evictOverflow();
+        }
+
+        inUse.put(ps, Boolean.TRUE);
+        return wrap(sql, ps, owner);
+    }
+
+    void closeAll() {
+        for (PreparedStatement ps : cache.values()) {
+            closeQuietly(ps);
+        }
+        cache.clear();
+        inUse.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = cache.entrySet().iterator();
+        while (cache.size() > maxSize && it.hasNext()) {
+            PreparedStatement eldest = it.next().getValue();
+            if (inUse.containsKey(eldest)) {
+                continue;
+            }
+            it.remove();
+            closeQuietly(eldest);
+        }
+    }
+
+    private void giveBack(String sql, PreparedStatement ps) {
+        inUse.remove(ps);
+        if (cache.get(sql) != ps) {
+            closeQuietly(ps);
+            return;
+        }
+        try {
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.setFetchSize(0);
+            ps.setMaxRows(0);
+        } catch (SQLException ex) {
+            cache.remove(sql);
+            closeQuietly(ps);
+        }
+    }
+
+    private PreparedStatement wrap(String sql, PreparedStatement ps, Connection owner) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Handler(sql, ps, owner));
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (Exception ignore) {
+        }
+    }
+
+    private final class Handler implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement target;
+        private final Connection owner;
+        private boolean closed = false;
+
+        Handler(String sql, PreparedStatement target, Connection owner) {
+            this.sql = sql;
+            this.target = target;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(sql, target);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + target + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("PreparedStatement già chiuso");
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ite) {
+                throw ite.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package it.unina.foodlab.util;
+
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Controllo "già in uso?" da chiamare a ogni battitura: attende una pausa nella digitazione,
+// annulla il controllo precedente e ricorda per poco i risultati. Da usare sul thread FX.
+public final class VerificaDisponibilita {
+
+    @FunctionalInterface
+    public interface Controllo {
+        boolean esiste(String valore) throws Exception;
+    }
+
+    public enum Stato { VUOTO, IN_VERIFICA, DISPONIBILE, OCCUPATO, ERRORE }
+
+    public record Esito(String valore, Stato stato) {}
+
+    private static final int MAX_VOCI = 256;
+
+    private record Voce(boolean esiste, long scadenza) {}
+
+    private final Controllo controllo;
+    private final Consumer<Esito> onEsito;
+    private final PauseTransition attesa;
+    private final long ttlDisponibileMs;
+    private final long ttlOccupatoMs;
+
+    private final Map<String, Voce> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Voce> eldest) {
+            return size() > MAX_VOCI;
+        }
+    };
+
+    private String corrente;
+    private Task<Boolean> inCorso;
+
+    // un valore libero può essere preso da altri a breve, uno occupato resta tale più a lungo
+    public VerificaDisponibilita(Controllo controllo, Consumer<Esito> onEsito) {
+        this(controllo, onEsito, Duration.millis(300), 10_000L, 60_000L);
+    }
+
+    public VerificaDisponibilita(Controllo controllo, Consumer<Esito> onEsito,
+                                 Duration debounce, long ttlDisponibileMs, long ttlOccupatoMs) {
+        this.controllo = Objects.requireNonNull(controllo);
+        this.onEsito = Objects.requireNonNull(onEsito);
+        this.ttlDisponibileMs = ttlDisponibileMs;
+        this.ttlOccupatoMs = ttlOccupatoMs;
+        this.attesa = new PauseTransition(debounce);
+        this.attesa.setOnFinished(e -> avviaControllo());
+    }
+
+    public void richiedi(String valore) {
+        attesa.stop();
+        annullaInCorso();
+
+        String v = valore == null ? "" : valore.trim();
+        corrente = v.isEmpty() ? null : v;
+        if (corrente == null) {
+            onEsito.accept(new Esito(v, Stato.VUOTO));
+            return;
+        }
+
+        Boolean noto = daCache(corrente);
+        if (noto != null) {
+            onEsito.accept(new Esito(corrente, noto ? Stato.OCCUPATO : Stato.DISPONIBILE));
+            return;
+        }
+
+        onEsito.accept(new Esito(corrente, Stato.IN_VERIFICA));
+        attesa.playFromStart();
+    }
+
+    // per i risultati ottenuti per altra via, ad esempio l'esito di una registrazione
+    public void segna(String valore, boolean esiste) {
+        if (valore == null || valore.trim().isEmpty()) {
+            return;
+        }
+        long ttl = esiste ? ttlOccupatoMs : ttlDisponibileMs;
+        cache.put(valore.trim(), new Voce(esiste, System.currentTimeMillis() + ttl));
+    }
+
+    public void annulla() {
+        attesa.stop();
+        annullaInCorso();
+        corrente = null;
+    }
+
+    private void avviaControllo() {
+        String v = corrente;
+        if (v == null) {
+            return;
+        }
+
+        Task<Boolean> task = Async.run(() -> controllo.esiste(v),
+                esiste -> {
+                    segna(v, esiste);
+                    if (v.equals(corrente)) {
+                        onEsito.accept(new Esito(v, esiste ? Stato.OCCUPATO : Stato.DISPONIBILE));
+                    }
+                },
+                ex -> {
+                    if (v.equals(corrente)) {
+                        onEsito.accept(new Esito(v, Stato.ERRORE));
+                    }
+                });
+        inCorso = task;
+    }
+
+    private void annullaInCorso() {
+        Task<Boolean> t = inCorso;
+        inCorso = null;
+        if (t != null) {
+            t.cancel();
+        }
+    }
+
+    private Boolean daCache(String valore) {
+        Voce voce = cache.get(valore);
+        if (voce == null) {
+            return null;
+        }
+        if (voce.scadenza() < System.currentTimeMillis()) {
+            cache.remove(valore);
+            return null;
+        }
+        return voce.esiste();
+    }
+}
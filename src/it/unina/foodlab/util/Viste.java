@@ -0,0 +1,113 @@
+package it.unina.foodlab.util;
+
+import javafx.animation.PauseTransition;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+// Carica le viste FXML tenendone pronta una copia nuova per la prossima apertura:
+// chi apre un dialog prende quella già costruita e la sostituta viene preparata quando
+// nessun dialog è aperto. Ogni copia si usa una volta sola, così non c'è stato da azzerare.
+// Da usare sul thread FX.
+public final class Viste {
+
+    public record Vista<C>(Parent root, C controller) {}
+
+    private static final Duration RITARDO_RICARICA = Duration.millis(500);
+
+    private static final Map<String, byte[]> SORGENTI = new HashMap<>();
+    private static final Map<String, Vista<?>> PRONTE = new HashMap<>();
+
+    private Viste() {}
+
+    @SuppressWarnings("unchecked")
+    public static <C> Vista<C> prendi(String fxml) throws IOException {
+        Vista<?> v = PRONTE.remove(fxml);
+        if (v == null) {
+            v = carica(fxml, null);
+        }
+        ricaricaQuandoLibero(fxml, RITARDO_RICARICA);
+        return (Vista<C>) v;
+    }
+
+    // per le viste il cui controller dipende da come vengono aperte: si evita solo di rileggere il file
+    public static <C> Vista<C> carica(String fxml, C controller) throws IOException {
+        FXMLLoader loader = new FXMLLoader(url(fxml));
+        if (controller != null) {
+            loader.setController(controller);
+        }
+        Parent root;
+        try (InputStream in = new ByteArrayInputStream(sorgente(fxml))) {
+            root = loader.load(in);
+        }
+        return new Vista<>(root, loader.getController());
+    }
+
+    // le viste vengono preparate una alla volta, per non bloccare l'interfaccia tutte insieme
+    public static void preriscalda(String... fxml) {
+        for (int i = 0; i < fxml.length; i++) {
+            ricaricaQuandoLibero(fxml[i], RITARDO_RICARICA.multiply(i + 1));
+        }
+    }
+
+    // il parsing blocca il thread FX: non lo si fa mentre l'utente sta usando un dialog
+    private static void ricaricaQuandoLibero(String fxml, Duration ritardo) {
+        PauseTransition attesa = new PauseTransition(ritardo);
+        attesa.setOnFinished(e -> {
+            if (PRONTE.containsKey(fxml)) {
+                return;
+            }
+            if (dialogAperto()) {
+                attesa.setDuration(RITARDO_RICARICA);
+                attesa.playFromStart();
+                return;
+            }
+            try {
+                PRONTE.put(fxml, carica(fxml, null));
+            } catch (IOException | RuntimeException ex) {
+                // riproverà prendi(), mostrando l'errore a chi apre la vista
+                ex.printStackTrace();
+            }
+        });
+        attesa.play();
+    }
+
+    // oltre alla finestra principale c'è un'altra Stage visibile: è un dialog
+    private static boolean dialogAperto() {
+        int visibili = 0;
+        for (Window w : Window.getWindows()) {
+            if (w instanceof Stage && w.isShowing()) {
+                visibili++;
+            }
+        }
+        return visibili > 1;
+    }
+
+    private static byte[] sorgente(String fxml) throws IOException {
+        byte[] b = SORGENTI.get(fxml);
+        if (b == null) {
+            try (InputStream in = url(fxml).openStream()) {
+                b = in.readAllBytes();
+            }
+            SORGENTI.put(fxml, b);
+        }
+        return b;
+    }
+
+    private static URL url(String fxml) throws IOException {
+        URL u = Viste.class.getResource(fxml);
+        if (u == null) {
+            throw new IOException("Vista non trovata: " + fxml);
+        }
+        return u;
+    }
+}